@@ -0,0 +1,384 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+import hudson.model.TopLevelItem;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpSessionEvent;
+import jenkins.model.Jenkins;
+import jenkins.util.HttpSessionListener;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Search, which runs in background for a session of {@link SimpleSearchView}.
+ * Found items become available while the search is running, the page polls 
+ * them by {@link SimpleSearchView#doRows}.
+ * <ul>
+ *   <li>There is at most one search per session and view, a new search
+ *       cancels the previous one.</li>
+ *   <li>The search gets cancelled if it is not polled for 
+ *       {@link #ABANDON_TIMEOUT_MS} or if the session is destroyed.</li>
+ *   <li>Searches run on a bounded pool of {@link #THREADS} threads. 
+ *       If the queue is full, the search gets {@link State#REJECTED rejected},
+ *       so the client has to retry later. Request threads never run searches.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class AsyncSearch implements Runnable {
+    
+    /**
+     * Maximum number of searches running at once.
+     */
+    static final int THREADS = SystemProperties.getInteger(
+            AsyncSearch.class.getName() + ".threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+    
+    /**
+     * Maximum number of searches waiting for a thread.
+     */
+    static final int QUEUE_SIZE = SystemProperties.getInteger(
+            AsyncSearch.class.getName() + ".queueSize", 100);
+    
+    /**
+     * Time, after which a search is cancelled if nobody polls its results.
+     */
+    static final long ABANDON_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(SystemProperties.getLong(
+            AsyncSearch.class.getName() + ".abandonTimeoutSeconds", 30L));
+    
+    /**
+     * Delay, after which clients of a rejected search should retry.
+     */
+    static final int RETRY_AFTER_SECONDS = SystemProperties.getInteger(
+            AsyncSearch.class.getName() + ".retryAfterSeconds", 2);
+    
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    
+    /**
+     * Searches by session ids and view URLs.
+     */
+    private static final ConcurrentMap<String, AsyncSearch> SEARCHES = new ConcurrentHashMap<String, AsyncSearch>();
+    
+    enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED,
+        /**
+         * The search has not been started, because the queue was full.
+         */
+        REJECTED
+    }
+    
+    @Nonnull
+    private final SimpleSearchView view;
+    @Nonnull
+    private final JobsFilter filter;
+    @Nonnull
+    private final Authentication auth;
+    /**
+     * {@link ItemsVersion} at the search start.
+     */
+    private final long version;
+    @Nonnull
+    private final Results results = new Results();
+    
+    @Nonnull
+    private volatile State state = State.RUNNING;
+    private volatile boolean truncated;
+    private volatile long lastAccessed = System.currentTimeMillis();
+    @CheckForNull
+    private volatile Future<?> future;
+
+    private AsyncSearch(@Nonnull SimpleSearchView view, @Nonnull JobsFilter filter, @Nonnull Authentication auth) {
+        this.view = view;
+        this.filter = filter;
+        this.auth = auth;
+        this.version = ItemsVersion.get();
+    }
+    
+    @Nonnull
+    private static ThreadPoolExecutor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 1, TimeUnit.MINUTES, 
+                new ArrayBlockingQueue<Runnable>(Math.max(1, QUEUE_SIZE)), 
+                new NamingThreadFactory(new DaemonThreadFactory(), "Dynamic Search View async search"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    @Nonnull
+    private static String keyOf(@Nonnull String sessionId, @Nonnull SimpleSearchView view) {
+        return sessionId + '\n' + view.getViewUrl();
+    }
+    
+    /**
+     * Gets the search of the session or starts a new one.
+     * The current search is reused if it has the same filter and the same user,
+     * and if its results are still valid.
+     * @param sessionId Session id
+     * @param view View
+     * @param filter Search filter
+     * @return Search
+     */
+    @Nonnull
+    static AsyncSearch get(@Nonnull String sessionId, @Nonnull SimpleSearchView view, @Nonnull JobsFilter filter) {
+        final String key = keyOf(sessionId, view);
+        final Authentication current = Jenkins.getAuthentication2();
+        final AsyncSearch existing = SEARCHES.get(key);
+        if (existing != null && existing.isReusable(view, filter, current)) {
+            existing.touch();
+            return existing;
+        }
+        
+        final AsyncSearch search = new AsyncSearch(view, filter, current);
+        final AsyncSearch previous = SEARCHES.put(key, search);
+        if (previous != null) {
+            previous.cancel();
+        }
+        try {
+            search.future = EXECUTOR.submit(search);
+        } catch (RejectedExecutionException ex) {
+            // Too many searches, the next request starts it again
+            search.state = State.REJECTED;
+            SEARCHES.remove(key, search);
+        }
+        return search;
+    }
+    
+    /**
+     * Cancels the search of the session if it is running.
+     * @param sessionId Session id
+     * @param view View
+     */
+    static void cancel(@Nonnull String sessionId, @Nonnull SimpleSearchView view) {
+        final AsyncSearch search = SEARCHES.remove(keyOf(sessionId, view));
+        if (search != null) {
+            search.cancel();
+        }
+    }
+    
+    private boolean isReusable(@Nonnull SimpleSearchView view, @Nonnull JobsFilter filter, 
+            @Nonnull Authentication current) {
+        if (this.view != view || !auth.getName().equals(current.getName())
+                || !this.filter.getCacheKey().equals(filter.getCacheKey())) {
+            return false;
+        }
+        switch (state) {
+            case RUNNING:
+                return true;
+            case COMPLETED:
+                // Items have changed, the page would be outdated
+                return version == ItemsVersion.get();
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (state != State.RUNNING) {
+            return; // Cancelled while waiting in the queue
+        }
+        try (ACLContext ctx = ACL.as2(auth)) {
+            truncated = filter.forEachMatch(view, new JobsFilter.Visitor() {
+                @Override
+                public boolean visit(TopLevelItem item) {
+                    if (isCancelled()) {
+                        return false;
+                    }
+                    results.add(item);
+                    return true;
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    if (state == State.RUNNING && System.currentTimeMillis() - lastAccessed > ABANDON_TIMEOUT_MS) {
+                        state = State.CANCELLED;
+                    }
+                    return state != State.RUNNING;
+                }
+            });
+            if (state == State.RUNNING) {
+                state = State.COMPLETED;
+            }
+        } catch (RuntimeException ex) {
+            // The page shows partial results, the next request retries
+            state = State.FAILED;
+        }
+    }
+    
+    private void cancel() {
+        if (state == State.RUNNING) {
+            state = State.CANCELLED;
+        }
+        final Future<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+    
+    private void touch() {
+        lastAccessed = System.currentTimeMillis();
+    }
+    
+    /**
+     * Checks whether the search has finished.
+     * A {@link State#REJECTED rejected} search is not done, its items will be
+     * found once the client retries.
+     * @return {@code true} if no more items will be found
+     */
+    boolean isDone() {
+        return state != State.RUNNING && state != State.REJECTED;
+    }
+    
+    /**
+     * Checks whether the search has been rejected, because the queue was full.
+     * @return {@code true} if the client should retry later
+     */
+    boolean isRejected() {
+        return state == State.REJECTED;
+    }
+    
+    /**
+     * Checks whether the search has run out of its time budget.
+     * @return {@code true} if the search has missed some items
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+    
+    @Nonnull
+    State getState() {
+        return state;
+    }
+    
+    /**
+     * Gets items found so far.
+     * @return Read-only list of items. Further items are appended to the end.
+     */
+    @Nonnull
+    List<TopLevelItem> getResults() {
+        return results.snapshot();
+    }
+    
+    /**
+     * Removes searches, which have not been accessed for a long time.
+     */
+    static void purgeAbandoned() {
+        final long now = System.currentTimeMillis();
+        for (Map.Entry<String, AsyncSearch> entry : SEARCHES.entrySet()) {
+            if (now - entry.getValue().lastAccessed > ABANDON_TIMEOUT_MS) {
+                SEARCHES.remove(entry.getKey(), entry.getValue());
+                entry.getValue().cancel();
+            }
+        }
+    }
+    
+    /**
+     * Append-only list, which is written by the search thread and read by 
+     * request threads without locking.
+     */
+    @SuppressFBWarnings(value = "VO_VOLATILE_REFERENCE_TO_ARRAY", justification = "Elements are published by the size")
+    private static final class Results {
+        
+        private volatile TopLevelItem[] buffer = new TopLevelItem[64];
+        private volatile int size;
+        
+        // Invoked by the search thread only
+        void add(@Nonnull TopLevelItem item) {
+            TopLevelItem[] local = buffer;
+            final int localSize = size;
+            if (localSize == local.length) {
+                local = Arrays.copyOf(local, local.length * 2);
+                buffer = local;
+            }
+            local[localSize] = item;
+            // Publishes the item
+            size = localSize + 1;
+        }
+        
+        @Nonnull
+        List<TopLevelItem> snapshot() {
+            final int localSize = size;
+            // The buffer is read after the size, so it contains all published items
+            return Collections.unmodifiableList(Arrays.asList(buffer).subList(0, localSize));
+        }
+    }
+    
+    /**
+     * Cancels searches of destroyed sessions.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SessionListenerImpl extends HttpSessionListener {
+
+        @Override
+        public void sessionDestroyed(HttpSessionEvent se) {
+            final String prefix = se.getSession().getId() + '\n';
+            for (Map.Entry<String, AsyncSearch> entry : SEARCHES.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    SEARCHES.remove(entry.getKey(), entry.getValue());
+                    entry.getValue().cancel();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes searches of clients, which have left the page.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class CleanupWork extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() throws Exception {
+            purgeAbandoned();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.model.Descriptor;
+import hudson.views.BuildButtonColumn;
+import hudson.views.JobColumn;
+import hudson.views.ListViewColumn;
+import hudson.views.StatusColumn;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Placeholder for a column, which is rendered after the page has been loaded.
+ * The results table contains empty cells of such columns, and the script 
+ * loads actual cells for rows in the viewport, see {@link SimpleSearchView#doColumns}.
+ * Columns, which load builds of the job, should be deferred, so broad searches 
+ * do not need to read the build history of all found jobs.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+public final class DeferredColumn extends ListViewColumn {
+
+    /**
+     * Class names of columns, which are always rendered with the page.
+     * They need only the job itself or its last build.
+     */
+    private static final Set<String> CHEAP_COLUMNS = new HashSet<String>(Arrays.asList(
+            StatusColumn.class.getName(), JobColumn.class.getName(), BuildButtonColumn.class.getName()));
+
+    /**
+     * Comma-separated class names of other columns, which should not be deferred.
+     */
+    private static final Set<String> EXTRA_CHEAP_COLUMNS = new HashSet<String>(Arrays.asList(
+            SystemProperties.getString(DeferredColumn.class.getName() + ".cheapColumns", "").split("\\s*,\\s*")));
+
+    @Nonnull
+    private final ListViewColumn column;
+    private final int index;
+
+    private DeferredColumn(@Nonnull ListViewColumn column, int index) {
+        this.column = column;
+        this.index = index;
+    }
+
+    /**
+     * Gets the original column.
+     */
+    @Nonnull
+    public ListViewColumn getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets the position of the column among {@link #getDeferred(List) deferred columns}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String getColumnCaption() {
+        return column.getColumnCaption();
+    }
+
+    @Override
+    public Descriptor<ListViewColumn> getDescriptor() {
+        return column.getDescriptor();
+    }
+
+    static boolean isDeferred(@Nonnull ListViewColumn column) {
+        final String className = column.getClass().getName();
+        return !CHEAP_COLUMNS.contains(className) && !EXTRA_CHEAP_COLUMNS.contains(className);
+    }
+
+    /**
+     * Replaces columns, which should be deferred, by placeholders.
+     * @param columns Columns of the view
+     * @return Columns to be rendered with the page
+     */
+    @Nonnull
+    static List<ListViewColumn> wrap(@Nonnull List<ListViewColumn> columns) {
+        final List<ListViewColumn> res = new ArrayList<ListViewColumn>(columns.size());
+        int index = 0;
+        for (ListViewColumn column : columns) {
+            res.add(isDeferred(column) ? new DeferredColumn(column, index++) : column);
+        }
+        return Collections.unmodifiableList(res);
+    }
+
+    /**
+     * Gets columns, which should be deferred.
+     * @param columns Columns of the view
+     * @return Columns in the order of their {@link #getIndex() indexes}
+     */
+    @Nonnull
+    static List<ListViewColumn> getDeferred(@Nonnull List<ListViewColumn> columns) {
+        final List<ListViewColumn> res = new ArrayList<ListViewColumn>();
+        for (ListViewColumn column : columns) {
+            if (isDeferred(column)) {
+                res.add(column);
+            }
+        }
+        return Collections.unmodifiableList(res);
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.AbstractItem;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.PeriodicWork;
+import hudson.model.Saveable;
+import hudson.model.TopLevelItem;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.scm.NullSCM;
+import hudson.scm.SCM;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Inverted index of item fields for {@link FullTextQuery}.
+ * <ul>
+ *   <li>Fields are split into lower-case tokens of letters and digits.
+ *       Terms are stored as {@code field:token} in a sorted map, so prefix 
+ *       terms are resolved by a range scan.</li>
+ *   <li>Posting lists contain full names of {@link TopLevelItem}s in all 
+ *       item groups. Permissions are not being checked.</li>
+ *   <li>The index is built in background on the first text query, searches
+ *       do not wait for it. Then it is kept up to date by {@link ItemListener}
+ *       and {@link SaveableListener} events, because descriptions are saved
+ *       without item events.</li>
+ *   <li>The index is saved as a {@link FullTextSnapshot}, so builds after 
+ *       restarts and reloads reuse terms of unchanged items. Terms may 
+ *       change without changes of configuration files after plugin or core
+ *       updates, so snapshots of other versions are not used.</li>
+ * </ul>
+ * Updates are serialized, readers take no locks and may see a partially 
+ * updated item.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class FullTextIndex {
+    
+    private static final FullTextIndex INSTANCE = new FullTextIndex();
+    
+    /**
+     * Builds the index, so long builds do not occupy the shared {@link jenkins.util.Timer}.
+     */
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    
+    /**
+     * Indexed fields of items.
+     */
+    enum Field {
+        NAME("name"),
+        DISPLAY_NAME("displayName"),
+        DESCRIPTION("description"),
+        LABEL("label"),
+        SCM("scm");
+        
+        @Nonnull
+        private final String key;
+
+        Field(@Nonnull String key) {
+            this.key = key;
+        }
+        
+        /**
+         * Gets the name used in queries, e.g. {@code label:linux}.
+         */
+        @Nonnull
+        String getKey() {
+            return key;
+        }
+        
+        /**
+         * Finds the field by its name in a query.
+         * @param key Field name, the case is ignored
+         * @return Field. {@code null} if there is no such field.
+         */
+        @CheckForNull
+        static Field fromKey(@Nonnull String key) {
+            for (Field field : values()) {
+                if (field.key.equalsIgnoreCase(key)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+        
+        @CheckForNull
+        String extract(@Nonnull TopLevelItem item) {
+            switch (this) {
+                case NAME:
+                    return item.getName();
+                case DISPLAY_NAME:
+                    return item.getDisplayName();
+                case DESCRIPTION:
+                    return item instanceof AbstractItem ? ((AbstractItem) item).getDescription() : null;
+                case LABEL:
+                    return item instanceof AbstractProject ? ((AbstractProject) item).getAssignedLabelString() : null;
+                case SCM:
+                    // Keys of common SCMs contain repository URLs
+                    if (item instanceof AbstractProject) {
+                        final SCM scm = ((AbstractProject) item).getScm();
+                        return scm != null && !(scm instanceof NullSCM) ? scm.getKey() : null;
+                    }
+                    return null;
+                default:
+                    throw new IllegalStateException("Unsupported field: " + this);
+            }
+        }
+    }
+    
+    /**
+     * Full names of items by terms.
+     */
+    private final ConcurrentSkipListMap<String, Set<String>> postings = new ConcurrentSkipListMap<String, Set<String>>();
+    /**
+     * Terms of items by their full names, they are needed to remove items.
+     * Guarded by the instance.
+     */
+    private final Map<String, Set<String>> terms = new HashMap<String, Set<String>>();
+    /**
+     * Stamps of indexed items by their full names, see {@link FullTextSnapshot#stampOf(Item)}.
+     * Guarded by the instance.
+     */
+    private final Map<String, Long> stamps = new HashMap<String, Long>();
+    /**
+     * Full names of all indexed items.
+     */
+    private final NavigableSet<String> all = new ConcurrentSkipListSet<String>();
+    /**
+     * Completes once all items have been indexed. 
+     * {@code null} until the first text query. Guarded by the instance.
+     */
+    @CheckForNull
+    private CompletableFuture<Void> build;
+    /**
+     * Set if the index has changed since it has been saved.
+     */
+    private volatile boolean dirty;
+    
+    private FullTextIndex() {
+        // Singleton
+    }
+    
+    @Nonnull
+    private static ThreadPoolExecutor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, 
+                new LinkedBlockingQueue<Runnable>(), 
+                new NamingThreadFactory(new DaemonThreadFactory(), "Dynamic Search View full-text index"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Gets the index if it has been built.
+     * Starts the build in background if it has not been started yet or if it
+     * has failed, the caller does not wait for it.
+     * @return Index, which contains all items. 
+     *         {@code null} if the index is not ready yet.
+     */
+    @CheckForNull
+    static FullTextIndex getIfReady() {
+        CompletableFuture<Void> b;
+        synchronized (INSTANCE) {
+            b = INSTANCE.build;
+            if (b == null || b.isCompletedExceptionally()) {
+                b = INSTANCE.startBuild();
+            }
+        }
+        return b.isDone() && !b.isCompletedExceptionally() ? INSTANCE : null;
+    }
+    
+    /**
+     * Rebuilds the index in background.
+     */
+    @Nonnull
+    private synchronized CompletableFuture<Void> startBuild() {
+        clear();
+        final CompletableFuture<Void> b = CompletableFuture.runAsync(this::load, EXECUTOR);
+        build = b;
+        return b;
+    }
+    
+    /**
+     * Rebuilds the index after items have been reloaded.
+     * Nothing happens if there have been no text queries yet.
+     */
+    private synchronized void reload() {
+        if (build != null) {
+            startBuild();
+        }
+    }
+    
+    private void load() {
+        // Snapshots of other versions are not read, terms may be extracted differently
+        final Map<String, FullTextSnapshot.Entry> saved = FullTextSnapshot.read(
+                FullTextSnapshot.getFile(), FullTextSnapshot.getVersionStamp());
+        indexAll(saved);
+    }
+    
+    /**
+     * Indexes all items.
+     * @param saved Saved entries of items. 
+     *        Terms of items with matching stamps are taken from there.
+     */
+    private void indexAll(@CheckForNull Map<String, FullTextSnapshot.Entry> saved) {
+        final Jenkins jenkins = Jenkins.get();
+        try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+            for (TopLevelItem item : jenkins.getAllItems(TopLevelItem.class)) {
+                final String fullName = item.getFullName();
+                final long stamp = FullTextSnapshot.stampOf(item);
+                final FullTextSnapshot.Entry entry = saved != null ? saved.get(fullName) : null;
+                synchronized (this) {
+                    // Skip items deleted or replaced since the listing, listeners have handled them
+                    if (jenkins.getItemByFullName(fullName) != item) {
+                        continue;
+                    }
+                    if (entry != null && entry.matches(stamp)) {
+                        update(fullName, new HashSet<String>(Arrays.asList(entry.getTerms())), stamp);
+                    } else {
+                        update(fullName, termsOf(item), stamp);
+                    }
+                }
+            }
+        }
+    }
+    
+    private synchronized void clear() {
+        postings.clear();
+        terms.clear();
+        stamps.clear();
+        all.clear();
+    }
+    
+    /**
+     * Indexes the item or updates it.
+     * @param item Item
+     * @param fullName Full name of the item, it is shared by posting lists
+     */
+    private synchronized void index(@Nonnull TopLevelItem item, @Nonnull String fullName) {
+        if (build == null) {
+            return; // The build indexes the item
+        }
+        update(fullName, termsOf(item), FullTextSnapshot.stampOf(item));
+    }
+    
+    /**
+     * Replaces terms of the item.
+     * Cached results are kept if the terms stay the same.
+     * @param fullName Full name of the item
+     * @param newTerms Terms of the item
+     * @param stamp Stamp of the item, see {@link FullTextSnapshot#stampOf(Item)}
+     */
+    private synchronized void update(@Nonnull String fullName, @Nonnull Set<String> newTerms, long stamp) {
+        final Long oldStamp = stamps.put(fullName, stamp);
+        final Set<String> oldTerms = terms.put(fullName, newTerms);
+        if (newTerms.equals(oldTerms)) {
+            if (oldStamp == null || oldStamp != stamp) {
+                dirty = true;
+            }
+            return;
+        }
+        if (oldTerms != null) {
+            for (String term : oldTerms) {
+                if (!newTerms.contains(term)) {
+                    removePosting(term, fullName);
+                }
+            }
+        }
+        for (String term : newTerms) {
+            if (oldTerms == null || !oldTerms.contains(term)) {
+                postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(fullName);
+            }
+        }
+        all.add(fullName);
+        dirty = true;
+        // Results cached before the update are obsolete
+        ItemsVersion.increment();
+    }
+    
+    /**
+     * Removes the item and items nested into it.
+     * @param fullName Full name of the item
+     */
+    private synchronized void remove(@Nonnull String fullName) {
+        if (build == null) {
+            return;
+        }
+        final List<String> names = new ArrayList<String>();
+        names.add(fullName);
+        names.addAll(all.subSet(fullName + "/", fullName + "0")); // '0' follows '/'
+        for (String name : names) {
+            final Set<String> oldTerms = terms.remove(name);
+            if (oldTerms != null) {
+                for (String term : oldTerms) {
+                    removePosting(term, name);
+                }
+            }
+            stamps.remove(name);
+            all.remove(name);
+        }
+        dirty = true;
+        ItemsVersion.increment();
+    }
+    
+    private void removePosting(@Nonnull String term, @Nonnull String fullName) {
+        final Set<String> posting = postings.get(term);
+        if (posting != null) {
+            posting.remove(fullName);
+            if (posting.isEmpty()) {
+                postings.remove(term, posting);
+            }
+        }
+    }
+    
+    /**
+     * Gets all terms of the item.
+     * @return Terms in the {@code field:token} form
+     */
+    @Nonnull
+    static Set<String> termsOf(@Nonnull TopLevelItem item) {
+        final Set<String> res = new HashSet<String>();
+        for (Field field : Field.values()) {
+            for (String token : tokenize(field.extract(item))) {
+                res.add(term(field, token));
+            }
+        }
+        return res;
+    }
+    
+    @Nonnull
+    static String term(@Nonnull Field field, @Nonnull String token) {
+        return field.key + ':' + token;
+    }
+    
+    /**
+     * Splits the text into lower-case tokens of letters and digits.
+     * @param text Text. {@code null} produces no tokens.
+     * @return Tokens in the order of their occurrence
+     */
+    @Nonnull
+    static List<String> tokenize(@CheckForNull String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> res = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            final boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                res.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Gets items containing the token.
+     * @param fields Fields to look in
+     * @param token Lower-case token
+     * @param prefix {@code true} if the token is a prefix of terms
+     * @return New set of full names
+     */
+    @Nonnull
+    Set<String> find(@Nonnull Collection<Field> fields, @Nonnull String token, boolean prefix) {
+        final Set<String> res = new HashSet<String>();
+        for (Field field : fields) {
+            final String term = term(field, token);
+            if (prefix) {
+                for (Set<String> posting : postings.subMap(term, term + Character.MAX_VALUE).values()) {
+                    res.addAll(posting);
+                }
+            } else {
+                final Set<String> posting = postings.get(term);
+                if (posting != null) {
+                    res.addAll(posting);
+                }
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Gets all indexed items.
+     * @return New set of full names
+     */
+    @Nonnull
+    Set<String> all() {
+        return new LinkedHashSet<String>(all);
+    }
+    
+    int size() {
+        return all.size();
+    }
+    
+    /**
+     * Saves the index if it has changed.
+     * Partially built indexes are not saved.
+     * @throws IOException Writing of the {@link FullTextSnapshot} failed
+     */
+    static void saveChanges() throws IOException {
+        final Map<String, Set<String>> savedTerms;
+        final Map<String, Long> savedStamps;
+        synchronized (INSTANCE) {
+            final CompletableFuture<Void> b = INSTANCE.build;
+            if (!INSTANCE.dirty || b == null || !b.isDone() || b.isCompletedExceptionally()) {
+                return;
+            }
+            // Term sets are replaced on updates, so a shallow copy is enough
+            savedTerms = new HashMap<String, Set<String>>(INSTANCE.terms);
+            savedStamps = new HashMap<String, Long>(INSTANCE.stamps);
+            INSTANCE.dirty = false;
+        }
+        try {
+            FullTextSnapshot.write(FullTextSnapshot.getFile(), FullTextSnapshot.getVersionStamp(), 
+                    savedTerms, savedStamps);
+        } catch (IOException ex) {
+            INSTANCE.dirty = true;
+            throw ex;
+        }
+    }
+    
+    /**
+     * Stops the build and saves the index on shutdown.
+     */
+    @Terminator
+    @Restricted(NoExternalUse.class)
+    public static void onShutdown() throws IOException {
+        EXECUTOR.shutdownNow();
+        saveChanges();
+    }
+    
+    /**
+     * Keeps the index up to date.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof TopLevelItem) {
+                INSTANCE.index((TopLevelItem) item, item.getFullName());
+            }
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            onCreated(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            INSTANCE.remove(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            // Also invoked for renames and for items in moved folders
+            INSTANCE.remove(oldFullName);
+            onCreated(item);
+        }
+
+        @Override
+        public void onLoaded() {
+            // Invoked on startup and after all items have been reloaded from the disk
+            INSTANCE.reload();
+        }
+    }
+    
+    /**
+     * Updates items, which have been saved without item events, e.g. after
+     * the description change.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveableListenerImpl extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof TopLevelItem) {
+                final TopLevelItem item = (TopLevelItem) o;
+                // Items being created are saved before they get into their groups
+                final Jenkins jenkins = Jenkins.getInstanceOrNull();
+                if (jenkins == null) {
+                    return;
+                }
+                try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+                    if (jenkins.getItemByFullName(item.getFullName()) == item) {
+                        INSTANCE.index(item, item.getFullName());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Saves the index periodically, so bulk changes of items do not write
+     * the snapshot for every item.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveWork extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() throws Exception {
+            saveChanges();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.model.TopLevelItem;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Query over item fields, which is evaluated by the {@link FullTextIndex}.
+ * Syntax:
+ * <ul>
+ *   <li>{@code word} - any field contains the word. Words are matched as 
+ *       whole tokens, the case is ignored.</li>
+ *   <li>{@code field:word} - the field contains the word. Fields are 
+ *       {@code name}, {@code displayName}, {@code description}, {@code label} 
+ *       and {@code scm}.</li>
+ *   <li>{@code word*} - a token starts with the word.</li>
+ *   <li>{@code "several words"}, {@code my-job} - all words match.</li>
+ *   <li>{@code a b}, {@code a AND b} - both terms match.</li>
+ *   <li>{@code a OR b} - any of terms matches.</li>
+ *   <li>{@code NOT a}, {@code -a} - the term does not match.</li>
+ *   <li>{@code (a OR b) c} - grouping.</li>
+ * </ul>
+ * {@code NOT} binds tighter than {@code AND}, which binds tighter than {@code OR}.
+ * The query is immutable.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class FullTextQuery {
+    
+    @Nonnull
+    private final String query;
+    @Nonnull
+    private final Node root;
+
+    private FullTextQuery(@Nonnull String query, @Nonnull Node root) {
+        this.query = query;
+        this.root = root;
+    }
+    
+    /**
+     * Parses the query.
+     * @param query Query string
+     * @return Parsed query
+     * @throws IllegalArgumentException The query is malformed
+     */
+    @Nonnull
+    static FullTextQuery parse(@Nonnull String query) throws IllegalArgumentException {
+        final Parser parser = new Parser(query);
+        final Node root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in the query: " + query);
+        }
+        return new FullTextQuery(query, root);
+    }
+    
+    /**
+     * Finds matching items in the index.
+     * @param index Index
+     * @return Full names of items. The set may be modified by the caller.
+     */
+    @Nonnull
+    Set<String> evaluate(@Nonnull FullTextIndex index) {
+        return root.evaluate(index);
+    }
+    
+    /**
+     * Checks the single item without the index.
+     * @param item Item
+     * @return {@code true} if the item matches the query
+     */
+    boolean matches(@Nonnull TopLevelItem item) {
+        return root.matches(FullTextIndex.termsOf(item));
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+    
+    private interface Node {
+        
+        @Nonnull
+        Set<String> evaluate(@Nonnull FullTextIndex index);
+        
+        /**
+         * @param terms Terms of a single item, see {@link FullTextIndex#termsOf(TopLevelItem)}
+         */
+        boolean matches(@Nonnull Set<String> terms);
+    }
+    
+    private static final class Term implements Node {
+        
+        @Nonnull
+        private final Collection<FullTextIndex.Field> fields;
+        @Nonnull
+        private final String token;
+        private final boolean prefix;
+
+        Term(@Nonnull Collection<FullTextIndex.Field> fields, @Nonnull String token, boolean prefix) {
+            this.fields = fields;
+            this.token = token;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Set<String> evaluate(FullTextIndex index) {
+            return index.find(fields, token, prefix);
+        }
+
+        @Override
+        public boolean matches(Set<String> terms) {
+            for (FullTextIndex.Field field : fields) {
+                final String term = FullTextIndex.term(field, token);
+                if (!prefix) {
+                    if (terms.contains(term)) {
+                        return true;
+                    }
+                    continue;
+                }
+                for (String t : terms) {
+                    if (t.startsWith(term)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static final class And implements Node {
+        
+        @Nonnull
+        private final List<Node> included = new ArrayList<Node>();
+        @Nonnull
+        private final List<Node> excluded = new ArrayList<Node>();
+
+        @Override
+        public Set<String> evaluate(FullTextIndex index) {
+            final List<Set<String>> sets = new ArrayList<Set<String>>(included.size());
+            for (Node node : included) {
+                sets.add(node.evaluate(index));
+            }
+            // Intersect starting from the shortest posting list
+            Collections.sort(sets, Comparator.comparingInt(Set::size));
+            final Set<String> res = sets.isEmpty() ? index.all() : sets.get(0);
+            for (int i = 1; i < sets.size() && !res.isEmpty(); i++) {
+                res.retainAll(sets.get(i));
+            }
+            for (Node node : excluded) {
+                if (res.isEmpty()) {
+                    break;
+                }
+                res.removeAll(node.evaluate(index));
+            }
+            return res;
+        }
+
+        @Override
+        public boolean matches(Set<String> terms) {
+            for (Node node : included) {
+                if (!node.matches(terms)) {
+                    return false;
+                }
+            }
+            for (Node node : excluded) {
+                if (node.matches(terms)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static final class Or implements Node {
+        
+        @Nonnull
+        private final List<Node> nodes = new ArrayList<Node>();
+
+        @Override
+        public Set<String> evaluate(FullTextIndex index) {
+            final Set<String> res = nodes.get(0).evaluate(index);
+            for (int i = 1; i < nodes.size(); i++) {
+                res.addAll(nodes.get(i).evaluate(index));
+            }
+            return res;
+        }
+
+        @Override
+        public boolean matches(Set<String> terms) {
+            for (Node node : nodes) {
+                if (node.matches(terms)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Recursive descent parser.
+     */
+    private static final class Parser {
+        
+        private static final Collection<FullTextIndex.Field> ALL_FIELDS = 
+                Collections.unmodifiableSet(EnumSet.allOf(FullTextIndex.Field.class));
+        
+        @Nonnull
+        private final String query;
+        @Nonnull
+        private final List<String> tokens;
+        private int pos;
+
+        Parser(@Nonnull String query) {
+            this.query = query;
+            this.tokens = lex(query);
+        }
+        
+        /**
+         * Splits the query into words, quoted strings and parentheses.
+         * Quoted strings keep their quotes, so they are not taken for operators.
+         */
+        @Nonnull
+        private static List<String> lex(@Nonnull String query) {
+            final List<String> res = new ArrayList<String>();
+            int i = 0;
+            while (i < query.length()) {
+                final char c = query.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    res.add(String.valueOf(c));
+                    i++;
+                } else {
+                    final int start = i;
+                    boolean quoted = false;
+                    while (i < query.length()) {
+                        final char ch = query.charAt(i);
+                        if (ch == '"') {
+                            quoted = !quoted;
+                        } else if (!quoted && (Character.isWhitespace(ch) || ch == '(' || ch == ')')) {
+                            break;
+                        }
+                        i++;
+                    }
+                    if (quoted) {
+                        throw new IllegalArgumentException("Unclosed quote in the query: " + query);
+                    }
+                    res.add(query.substring(start, i));
+                }
+            }
+            return res;
+        }
+        
+        @CheckForNull
+        String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+        
+        @Nonnull
+        Node parseOr() {
+            final Node first = parseAnd();
+            if (!"OR".equals(peek())) {
+                return first;
+            }
+            final Or or = new Or();
+            or.nodes.add(first);
+            while ("OR".equals(peek())) {
+                pos++;
+                or.nodes.add(parseAnd());
+            }
+            return or;
+        }
+        
+        @Nonnull
+        private Node parseAnd() {
+            final And and = new And();
+            while (true) {
+                final String token = peek();
+                if (token == null || token.equals(")") || token.equals("OR")) {
+                    break;
+                }
+                if (token.equals("AND")) {
+                    pos++;
+                    continue;
+                }
+                boolean negated = false;
+                for (String t = peek(); t != null && (t.equals("NOT") || t.startsWith("-")); t = peek()) {
+                    if (t.equals("NOT") || t.equals("-")) {
+                        pos++;
+                    } else {
+                        tokens.set(pos, t.substring(1));
+                    }
+                    negated = !negated;
+                }
+                (negated ? and.excluded : and.included).add(parsePrimary());
+            }
+            if (and.included.isEmpty() && and.excluded.isEmpty()) {
+                throw new IllegalArgumentException("Missing term in the query: " + query);
+            }
+            return and.included.size() == 1 && and.excluded.isEmpty() ? and.included.get(0) : and;
+        }
+        
+        @Nonnull
+        private Node parsePrimary() {
+            final String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Missing term in the query: " + query);
+            }
+            pos++;
+            if (token.equals("(")) {
+                final Node res = parseOr();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("Missing ')' in the query: " + query);
+                }
+                pos++;
+                return res;
+            }
+            if (token.equals(")")) {
+                throw new IllegalArgumentException("Unexpected ')' in the query: " + query);
+            }
+            return parseTerm(token);
+        }
+        
+        @Nonnull
+        private Node parseTerm(@Nonnull String token) {
+            Collection<FullTextIndex.Field> fields = ALL_FIELDS;
+            String value = token;
+            final int colon = token.indexOf(':');
+            if (colon > 0 && token.charAt(0) != '"') {
+                final FullTextIndex.Field field = FullTextIndex.Field.fromKey(token.substring(0, colon));
+                if (field == null) {
+                    final List<String> keys = new ArrayList<String>();
+                    for (FullTextIndex.Field f : FullTextIndex.Field.values()) {
+                        keys.add(f.getKey());
+                    }
+                    throw new IllegalArgumentException("Unknown field '" + token.substring(0, colon) 
+                            + "' in the query, supported fields: " + keys);
+                }
+                fields = Collections.singleton(field);
+                value = token.substring(colon + 1);
+            }
+            final boolean prefix = value.endsWith("*");
+            final List<String> words = FullTextIndex.tokenize(prefix ? value.substring(0, value.length() - 1) : value);
+            if (words.isEmpty()) {
+                throw new IllegalArgumentException("No letters or digits in '" + token + "' in the query: " + query);
+            }
+            if (words.size() == 1) {
+                return new Term(fields, words.get(0), prefix);
+            }
+            // Quoted strings and words with separators, e.g. "my-job", match if all parts are there
+            final And and = new And();
+            for (int i = 0; i < words.size(); i++) {
+                and.included.add(new Term(fields, words.get(i), prefix && i == words.size() - 1));
+            }
+            return and;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.PluginWrapper;
+import hudson.model.Item;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Binary snapshot of the {@link FullTextIndex} in {@code JENKINS_HOME}.
+ * After restarts and reloads the index takes terms of unchanged items from
+ * the snapshot instead of extracting them again.
+ * Items are checked by {@link #stampOf(Item) stamps} of their configuration files.
+ * Terms depend on the code, which extracts them, so the snapshot is also 
+ * stamped by the {@link #getVersionStamp() versions} of the plugin and the core.
+ * The file is memory-mapped for reading, its format is (big-endian):
+ * <pre>
+ * int magic, int format version, version stamp
+ * int number of terms, terms
+ * int number of items, then for every item:
+ *     full name, long stamp, int number of terms, int[] positions of terms
+ * </pre>
+ * Strings are stored as the number of bytes followed by UTF-8 bytes.
+ * Missing, outdated or damaged snapshots and snapshots of other versions are ignored.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class FullTextSnapshot {
+
+    private static final int MAGIC = 0x44535649; // DSVI
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Saved state of an item.
+     */
+    static final class Entry {
+        private final long stamp;
+        @Nonnull
+        private final String[] terms;
+
+        Entry(long stamp, @Nonnull String[] terms) {
+            this.stamp = stamp;
+            this.terms = terms;
+        }
+
+        /**
+         * Checks whether the entry is still valid for the item.
+         * @param stamp Current {@link #stampOf(Item) stamp} of the item
+         */
+        boolean matches(long stamp) {
+            return stamp != 0 && this.stamp == stamp;
+        }
+
+        @Nonnull
+        String[] getTerms() {
+            return terms;
+        }
+    }
+
+    private FullTextSnapshot() {
+        // Cannot be instantiated
+    }
+
+    /**
+     * Gets the version of the code, which extracts terms of items.
+     * Fields of items are provided by the core, so its version is included.
+     * @return Stamp, which changes on upgrades of the plugin or the core
+     */
+    @Nonnull
+    static String getVersionStamp() {
+        final PluginWrapper plugin = Jenkins.get().getPluginManager().whichPlugin(FullTextSnapshot.class);
+        return (plugin != null ? plugin.getVersion() : "") + '/' + Jenkins.getVersion();
+    }
+
+    @Nonnull
+    static File getFile() {
+        return new File(Jenkins.get().getRootDir(), "caches/dynamic-search-view/full-text-index.bin");
+    }
+
+    /**
+     * Gets the version of indexed fields of the item.
+     * All indexed fields are stored in the configuration file of the item,
+     * so the stamp is derived from its modification time and size.
+     * @param item Item
+     * @return Stamp. {@code 0} if the item has not been saved yet.
+     */
+    static long stampOf(@Nonnull Item item) {
+        final File file = new File(item.getRootDir(), "config.xml");
+        try {
+            final BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attrs.lastModifiedTime().toMillis() * 31 + attrs.size();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the snapshot.
+     * @param file Snapshot file
+     * @param versionStamp Expected {@link #getVersionStamp() version stamp}
+     * @return Entries by full names of items. 
+     *         {@code null} if the file is missing, outdated or damaged,
+     *         or if it has been written by another version.
+     */
+    @CheckForNull
+    static Map<String, Entry> read(@Nonnull File file, @Nonnull String versionStamp) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION
+                    || !versionStamp.equals(readString(buf))) {
+                return null;
+            }
+
+            final String[] dictionary = new String[readCount(buf)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buf);
+            }
+            final int count = readCount(buf);
+            final Map<String, Entry> res = new HashMap<String, Entry>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                final String fullName = readString(buf);
+                final long stamp = buf.getLong();
+                final String[] terms = new String[readCount(buf)];
+                for (int j = 0; j < terms.length; j++) {
+                    terms[j] = dictionary[buf.getInt()];
+                }
+                res.put(fullName, new Entry(stamp, terms));
+            }
+            return res;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException ex) {
+            // The index is built from scratch then
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot.
+     * The file is replaced atomically where the file system supports it.
+     * @param file Snapshot file
+     * @param versionStamp {@link #getVersionStamp() Version stamp} of the terms
+     * @param terms Terms of items by their full names
+     * @param stamps {@link #stampOf(Item) Stamps} of items by their full names
+     * @throws IOException Writing failed
+     */
+    static void write(@Nonnull File file, @Nonnull String versionStamp, 
+            @Nonnull Map<String, Set<String>> terms, @Nonnull Map<String, Long> stamps) throws IOException {
+        // Most terms are shared by many items, so they are stored once
+        final Map<String, Integer> positions = new HashMap<String, Integer>();
+        final List<String> dictionary = new ArrayList<String>();
+        for (Set<String> itemTerms : terms.values()) {
+            for (String term : itemTerms) {
+                if (!positions.containsKey(term)) {
+                    positions.put(term, dictionary.size());
+                    dictionary.add(term);
+                }
+            }
+        }
+
+        final File dir = file.getParentFile();
+        Files.createDirectories(dir.toPath());
+        final File tmp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, versionStamp);
+            out.writeInt(dictionary.size());
+            for (String term : dictionary) {
+                writeString(out, term);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Set<String>> entry : terms.entrySet()) {
+                final Long stamp = stamps.get(entry.getKey());
+                writeString(out, entry.getKey());
+                out.writeLong(stamp != null ? stamp : 0);
+                out.writeInt(entry.getValue().size());
+                for (String term : entry.getValue()) {
+                    out.writeInt(positions.get(term));
+                }
+            }
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a number of elements.
+     * Every element takes at least one byte, so damaged numbers are detected
+     * before arrays get allocated.
+     */
+    private static int readCount(@Nonnull ByteBuffer buf) {
+        final int count = buf.getInt();
+        if (count < 0 || count > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull ByteBuffer buf) {
+        final byte[] bytes = new byte[readCount(buf)];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@Nonnull DataOutputStream out, @Nonnull String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
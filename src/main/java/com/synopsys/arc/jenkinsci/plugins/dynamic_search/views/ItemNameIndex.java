@@ -0,0 +1,548 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.TopLevelItem;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Sorted index of item names within a single {@link ItemGroup}.
+ * The index is being built on the first search and then kept up to date by
+ * {@link ItemListener} events, so searches do not need to sort names and to
+ * resolve items by name again.
+ * Readers get an immutable {@link Snapshot}, which is replaced on every update.
+ * Positions in the snapshot serve as dense item ids, so predicates over items
+ * can be evaluated into {@link BitSet}s and cached by the snapshot.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class ItemNameIndex {
+
+    /**
+     * Minimal number of items in a group, for which searches use a {@link TrigramIndex}.
+     * Smaller groups are scanned completely.
+     */
+    static final int TRIGRAM_INDEX_THRESHOLD = SystemProperties.getInteger(
+            ItemNameIndex.class.getName() + ".trigramIndexThreshold", 1000);
+
+    /**
+     * Maximum number of regular expressions, for which a snapshot caches matches.
+     */
+    static final int MAX_CACHED_PATTERNS = SystemProperties.getInteger(
+            ItemNameIndex.class.getName() + ".maxCachedPatterns", 32);
+
+    private static final Map<ItemGroup<?>, ItemNameIndex> INDEXES = new ConcurrentHashMap<ItemGroup<?>, ItemNameIndex>();
+
+    @Nonnull
+    private final ItemGroup<? extends Item> group;
+
+    /**
+     * Current snapshot. Null if the index has not been built yet.
+     */
+    @CheckForNull
+    private volatile Snapshot snapshot;
+
+    private ItemNameIndex(@Nonnull ItemGroup<? extends Item> group) {
+        this.group = group;
+    }
+
+    /**
+     * Gets the index for the item group.
+     * Only {@link TopLevelItem}s get indexed.
+     * @param group Item group
+     * @return Index. It will be built on the first {@link #getSnapshot()} call.
+     */
+    @Nonnull
+    static ItemNameIndex of(@Nonnull ItemGroup<? extends Item> group) {
+        ItemNameIndex index = INDEXES.get(group);
+        if (index == null) {
+            ItemNameIndex newIndex = new ItemNameIndex(group);
+            index = INDEXES.putIfAbsent(group, newIndex);
+            if (index == null) {
+                index = newIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the current state of the index.
+     * @return Snapshot of all items in the group, including ones, which are
+     *         not visible to the current user.
+     */
+    @Nonnull
+    Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                s = snapshot;
+                if (s == null) {
+                    s = build();
+                    snapshot = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    @Nonnull
+    private Snapshot build() {
+        final Collection<? extends Item> allItems;
+        try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+            allItems = group.getItems();
+        }
+
+        // Nested groups may contain items of other types, e.g. matrix configurations
+        final List<TopLevelItem> topLevelItems = new ArrayList<TopLevelItem>(allItems.size());
+        for (Item item : allItems) {
+            if (item instanceof TopLevelItem) {
+                topLevelItems.add((TopLevelItem) item);
+            }
+        }
+        
+        final TopLevelItem[] items = topLevelItems.toArray(new TopLevelItem[topLevelItems.size()]);
+        final String[] names = new String[items.length];
+        Arrays.sort(items, (a, b) -> a.getName().compareTo(b.getName()));
+        for (int i = 0; i < items.length; i++) {
+            names[i] = items[i].getName();
+        }
+        return new Snapshot(names, items, null, null, null);
+    }
+
+    private synchronized void add(@Nonnull TopLevelItem item) {
+        Snapshot s = snapshot;
+        if (s != null) { // Otherwise the item will be taken by build()
+            snapshot = s.with(item);
+        }
+    }
+
+    private synchronized void remove(@Nonnull Item item) {
+        Snapshot s = snapshot;
+        if (s != null) {
+            snapshot = s.without(item);
+        }
+    }
+
+    /**
+     * Immutable state of the index.
+     * Items are sorted by their names, the position in the snapshot is a valid
+     * item identifier while the snapshot is being used.
+     * {@link BitSet}s returned by the snapshot are shared and must not be modified.
+     */
+    static final class Snapshot {
+
+        @Nonnull
+        private final String[] names;
+        @Nonnull
+        private final TopLevelItem[] items;
+        /**
+         * Trigram index for the names, it is being built on demand.
+         */
+        @CheckForNull
+        private volatile TrigramIndex trigrams;
+        /**
+         * Case-insensitive prefix index for the names, it is being built on demand.
+         */
+        @CheckForNull
+        private volatile PrefixIndex prefixes;
+        /**
+         * Items matching regular expressions.
+         * Snapshots with the same names share the cache.
+         */
+        @Nonnull
+        private final ConcurrentMap<String, BitSet> patternMatches;
+        /**
+         * Enabled and disabled projects, they are being calculated on demand.
+         */
+        @CheckForNull
+        private volatile StatusBits statusBits;
+        /**
+         * Items visible to users by their authentications, see {@link VisibleItems}.
+         */
+        @Nonnull
+        private final ConcurrentMap<String, VisibleItems> visibleItems = new ConcurrentHashMap<String, VisibleItems>();
+
+        private Snapshot(@Nonnull String[] names, @Nonnull TopLevelItem[] items, 
+                @CheckForNull TrigramIndex trigrams, @CheckForNull PrefixIndex prefixes,
+                @CheckForNull ConcurrentMap<String, BitSet> patternMatches) {
+            this.names = names;
+            this.items = items;
+            this.trigrams = trigrams;
+            this.prefixes = prefixes;
+            this.patternMatches = patternMatches != null 
+                    ? patternMatches : new ConcurrentHashMap<String, BitSet>();
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        @Nonnull
+        String getName(int i) {
+            return names[i];
+        }
+
+        @Nonnull
+        TopLevelItem getItem(int i) {
+            return items[i];
+        }
+
+        /**
+         * Finds the position of the item with the specified name.
+         * @return Position of the item if it exists.
+         *         Otherwise, {@code (-(insertion point) - 1)}.
+         * @see Arrays#binarySearch(java.lang.Object[], java.lang.Object)
+         */
+        int indexOf(@Nonnull String name) {
+            return Arrays.binarySearch(names, name);
+        }
+
+        /**
+         * Finds items, which may match a regex with the specified literal fragments.
+         * @param literals Required fragments of the regex
+         * @return Sorted positions of candidate items.
+         *         {@code null} if all items should be checked.
+         * @see RegexLiterals
+         */
+        @CheckForNull
+        int[] findCandidates(@Nonnull List<String> literals) {
+            return findCandidates(literals, TRIGRAM_INDEX_THRESHOLD);
+        }
+
+        /**
+         * Finds candidate items using the specified threshold.
+         * @param literals Required fragments of the regex
+         * @param threshold Minimal number of items, for which the {@link TrigramIndex} is used
+         * @return Sorted positions of candidate items.
+         *         {@code null} if all items should be checked.
+         */
+        @CheckForNull
+        int[] findCandidates(@Nonnull List<String> literals, int threshold) {
+            if (literals.isEmpty() || names.length < threshold) {
+                return null;
+            }
+            TrigramIndex t = trigrams;
+            if (t == null) {
+                t = TrigramIndex.build(names);
+                trigrams = t;
+            }
+            return t.candidates(literals);
+        }
+
+        /**
+         * Gets the index for completions of item names.
+         * @return Index of the names in the snapshot, it is built on the first call
+         */
+        @Nonnull
+        PrefixIndex getPrefixIndex() {
+            PrefixIndex p = prefixes;
+            if (p == null) {
+                p = PrefixIndex.build(names);
+                prefixes = p;
+            }
+            return p;
+        }
+
+        @Nonnull
+        ConcurrentMap<String, VisibleItems> getVisibleItems() {
+            return visibleItems;
+        }
+
+        /**
+         * Gets all items in the snapshot.
+         * @return New bit set, which may be modified by the caller
+         */
+        @Nonnull
+        BitSet all() {
+            final BitSet res = new BitSet(names.length);
+            res.set(0, names.length);
+            return res;
+        }
+
+        /**
+         * Gets items, which names fully match the pattern.
+         * Matching is limited by the {@link RegexGuard#TIME_BUDGET_MS time budget}.
+         * If the budget is exceeded, the deadline gets 
+         * {@link RegexGuard.Deadline#isExceeded() exceeded},
+         * and the results are not cached.
+         * @param pattern Pattern
+         * @param literals Required fragments of the pattern, see {@link RegexLiterals}
+         * @param deadline Time budget of the search
+         * @return Shared bit set of matching items
+         */
+        @Nonnull
+        BitSet matching(@Nonnull Pattern pattern, @Nonnull List<String> literals, 
+                @Nonnull RegexGuard.Deadline deadline) {
+            final String key = pattern.pattern();
+            BitSet res = patternMatches.get(key);
+            SearchMetrics.get().recordPatternMatchCache(res != null);
+            if (res != null) {
+                return res;
+            }
+
+            res = new BitSet(names.length);
+            final int[] candidates = findCandidates(literals);
+            final int count = candidates != null ? candidates.length : names.length;
+            final Matcher matcher = pattern.matcher("");
+            try {
+                for (int k = 0; k < count; k++) {
+                    final int i = candidates != null ? candidates[k] : k;
+                    if (deadline.matches(matcher, names[i])) {
+                        res.set(i);
+                    }
+                }
+            } catch (RegexGuard.BudgetExceededException ex) {
+                return res;
+            }
+
+            if (patternMatches.size() >= MAX_CACHED_PATTERNS) {
+                patternMatches.clear();
+            }
+            patternMatches.put(key, res);
+            return res;
+        }
+
+        /**
+         * Matches several patterns in a single pass over the names.
+         * Results are cached like the ones of {@link #matching(Pattern, List, RegexGuard.Deadline)}.
+         * Patterns, which have been cached already or which may use the 
+         * {@link TrigramIndex}, are skipped. If the pass exceeds the 
+         * {@link RegexGuard#TIME_BUDGET_MS time budget}, nothing is cached, and
+         * patterns are matched one by one later.
+         * @param patterns Patterns with their literal fragments, see {@link RegexLiterals}
+         */
+        void matchAll(@Nonnull Map<Pattern, List<String>> patterns) {
+            final List<String> keys = new ArrayList<String>();
+            final List<Matcher> matchers = new ArrayList<Matcher>();
+            for (Map.Entry<Pattern, List<String>> entry : patterns.entrySet()) {
+                final String key = entry.getKey().pattern();
+                if (!patternMatches.containsKey(key) && !keys.contains(key) 
+                        && findCandidates(entry.getValue()) == null) {
+                    keys.add(key);
+                    matchers.add(entry.getKey().matcher(""));
+                }
+            }
+            if (keys.isEmpty()) {
+                return;
+            }
+
+            final BitSet[] res = new BitSet[keys.size()];
+            for (int k = 0; k < res.length; k++) {
+                res[k] = new BitSet(names.length);
+            }
+            SearchMetrics.get().recordScan(names.length);
+            final RegexGuard.Deadline deadline = RegexGuard.newDeadline();
+            try {
+                for (int i = 0; i < names.length; i++) {
+                    for (int k = 0; k < res.length; k++) {
+                        if (deadline.matches(matchers.get(k), names[i])) {
+                            res[k].set(i);
+                        }
+                    }
+                }
+            } catch (RegexGuard.BudgetExceededException ex) {
+                return;
+            }
+
+            if (patternMatches.size() + keys.size() > MAX_CACHED_PATTERNS) {
+                patternMatches.clear();
+            }
+            for (int k = 0; k < res.length; k++) {
+                patternMatches.put(keys.get(k), res[k]);
+            }
+        }
+
+        /**
+         * Gets projects, which are disabled.
+         * @return Shared bit set of {@link AbstractProject}s, which are disabled
+         */
+        @Nonnull
+        BitSet disabledProjects() {
+            return getStatusBits().disabled;
+        }
+
+        /**
+         * Gets projects, which are enabled.
+         * @return Shared bit set of {@link AbstractProject}s, which are not disabled
+         */
+        @Nonnull
+        BitSet enabledProjects() {
+            return getStatusBits().enabled;
+        }
+
+        @Nonnull
+        private StatusBits getStatusBits() {
+            StatusBits bits = statusBits;
+            if (bits == null) {
+                final BitSet disabled = new BitSet(items.length);
+                final BitSet enabled = new BitSet(items.length);
+                for (int i = 0; i < items.length; i++) {
+                    if (items[i] instanceof AbstractProject) {
+                        (((AbstractProject) items[i]).isDisabled() ? disabled : enabled).set(i);
+                    }
+                }
+                bits = new StatusBits(disabled, enabled);
+                statusBits = bits;
+            }
+            return bits;
+        }
+
+        @Nonnull
+        private Snapshot with(@Nonnull TopLevelItem item) {
+            final String name = item.getName();
+            int pos = indexOf(name);
+            if (pos >= 0) { // Replace the item with the same name, names stay the same
+                TopLevelItem[] newItems = items.clone();
+                newItems[pos] = item;
+                return new Snapshot(names, newItems, trigrams, prefixes, patternMatches);
+            }
+
+            pos = -pos - 1;
+            String[] newNames = new String[names.length + 1];
+            TopLevelItem[] newItems = new TopLevelItem[items.length + 1];
+            System.arraycopy(names, 0, newNames, 0, pos);
+            System.arraycopy(items, 0, newItems, 0, pos);
+            newNames[pos] = name;
+            newItems[pos] = item;
+            System.arraycopy(names, pos, newNames, pos + 1, names.length - pos);
+            System.arraycopy(items, pos, newItems, pos + 1, items.length - pos);
+            return new Snapshot(newNames, newItems, null, null, null);
+        }
+
+        @Nonnull
+        private Snapshot without(@Nonnull Item item) {
+            // The item may have been renamed, hence we look for the instance
+            int pos = indexOf(item.getName());
+            if (pos < 0 || items[pos] != item) {
+                pos = -1;
+                for (int i = 0; i < items.length; i++) {
+                    if (items[i] == item) {
+                        pos = i;
+                        break;
+                    }
+                }
+            }
+            if (pos < 0) {
+                return this;
+            }
+
+            String[] newNames = new String[names.length - 1];
+            TopLevelItem[] newItems = new TopLevelItem[items.length - 1];
+            System.arraycopy(names, 0, newNames, 0, pos);
+            System.arraycopy(items, 0, newItems, 0, pos);
+            System.arraycopy(names, pos + 1, newNames, pos, names.length - pos - 1);
+            System.arraycopy(items, pos + 1, newItems, pos, items.length - pos - 1);
+            return new Snapshot(newNames, newItems, null, null, null);
+        }
+    }
+
+    private static final class StatusBits {
+        @Nonnull
+        private final BitSet disabled;
+        @Nonnull
+        private final BitSet enabled;
+
+        StatusBits(@Nonnull BitSet disabled, @Nonnull BitSet enabled) {
+            this.disabled = disabled;
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Keeps indexes up to date.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof TopLevelItem) {
+                ItemNameIndex index = INDEXES.get(item.getParent());
+                if (index != null) {
+                    index.add((TopLevelItem) item);
+                }
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            for (ItemNameIndex index : INDEXES.values()) {
+                index.remove(item);
+            }
+            if (item instanceof ItemGroup) {
+                INDEXES.remove(item);
+            }
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            // The project may have been disabled or enabled
+            onCreated(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            relocate(item);
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            relocate(item);
+        }
+
+        @Override
+        public void onLoaded() {
+            // All items have been reloaded from the disk, old instances are obsolete
+            INDEXES.clear();
+        }
+
+        private void relocate(@Nonnull Item item) {
+            // The old parent is unknown, so the item gets removed from all indexes
+            for (ItemNameIndex index : INDEXES.values()) {
+                index.remove(item);
+            }
+            onCreated(item);
+        }
+    }
+}
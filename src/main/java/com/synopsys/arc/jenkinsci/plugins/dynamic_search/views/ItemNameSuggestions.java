@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.TopLevelItem;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Completions of item names for the search box.
+ * Names are looked up in the {@link PrefixIndex} of the {@link ItemNameIndex}, 
+ * so only items starting with the typed prefix are being checked.
+ * In views, which recurse in subfolders, the prefix may contain a path 
+ * relative to the owner group, e.g. {@code folder/sub/jo}.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class ItemNameSuggestions {
+
+    /**
+     * Maximum number of completions, which may be requested.
+     */
+    static final int MAX_LIMIT = SystemProperties.getInteger(
+            ItemNameSuggestions.class.getName() + ".maxLimit", 50);
+
+    /**
+     * Maximum number of matching items, which are being counted.
+     * Every counted item needs a permission check, so the count is not exact
+     * for short prefixes in large groups.
+     */
+    static final int MAX_COUNT = SystemProperties.getInteger(
+            ItemNameSuggestions.class.getName() + ".maxCount", 1000);
+
+    @Nonnull
+    private final List<String> names;
+    @Nonnull
+    private final List<Boolean> groups;
+    private final int count;
+    private final boolean exact;
+
+    private ItemNameSuggestions(@Nonnull List<String> names, @Nonnull List<Boolean> groups, 
+            int count, boolean exact) {
+        this.names = names;
+        this.groups = groups;
+        this.count = count;
+        this.exact = exact;
+    }
+
+    /**
+     * Finds items, which names start with the prefix ignoring the case.
+     * @param root Owner group of the view
+     * @param prefix Typed prefix of the relative item name
+     * @param auth Authentication, for which the permissions are checked
+     * @param recurse If {@code true}, the prefix may contain a path of folders
+     * @param maxDepth Maximum number of nested group levels.
+     *        {@code 0} or negative value means no limit.
+     * @param limit Number of completions, it is limited by {@link #MAX_LIMIT}
+     * @return Completions in the order of names
+     */
+    @Nonnull
+    static ItemNameSuggestions find(@Nonnull ItemGroup<? extends Item> root, @Nonnull String prefix,
+            @Nonnull Authentication auth, boolean recurse, int maxDepth, int limit) {
+        ItemGroup<? extends Item> group = root;
+        String path = "";
+        String namePrefix = prefix;
+        int depth = 0;
+        if (recurse) {
+            // Resolve folders the same way as the search does
+            final int slash = prefix.lastIndexOf('/');
+            if (slash >= 0) {
+                path = prefix.substring(0, slash + 1);
+                namePrefix = prefix.substring(slash + 1);
+                for (String segment : path.substring(0, slash).split("/", -1)) {
+                    final ItemNameIndex.Snapshot index = ItemNameIndex.of(group).getSnapshot();
+                    final int pos = index.indexOf(segment);
+                    if (pos < 0 || (maxDepth > 0 && depth >= maxDepth)) {
+                        return none();
+                    }
+                    final TopLevelItem item = index.getItem(pos);
+                    if (!(item instanceof ItemGroup) || !VisibleItems.isVisible(item, auth)) {
+                        return none();
+                    }
+                    group = (ItemGroup<? extends Item>) item;
+                    depth++;
+                }
+            }
+        }
+        final boolean descend = recurse && (maxDepth <= 0 || depth < maxDepth);
+
+        final ItemNameIndex.Snapshot index = ItemNameIndex.of(group).getSnapshot();
+        final BitSet visible = VisibleItems.get(index, auth);
+        final PrefixIndex prefixes = index.getPrefixIndex();
+        final String key = PrefixIndex.toKey(namePrefix);
+        final int from = prefixes.from(key);
+        final int to = prefixes.to(key, from);
+        final int effectiveLimit = Math.max(0, Math.min(limit, MAX_LIMIT));
+
+        final List<String> names = new ArrayList<String>(Math.min(effectiveLimit, to - from));
+        final List<Boolean> groups = new ArrayList<Boolean>(Math.min(effectiveLimit, to - from));
+        int count = 0;
+        for (int k = from; k < to; k++) {
+            if (count >= MAX_COUNT) {
+                return new ItemNameSuggestions(names, groups, count, false);
+            }
+            final int pos = prefixes.position(k);
+            final TopLevelItem item = index.getItem(pos);
+            if (visible != null ? !visible.get(pos) : !item.getACL().hasPermission2(auth, Item.READ)) {
+                continue;
+            }
+            if (names.size() < effectiveLimit) {
+                names.add(path + item.getName());
+                groups.add(descend && item instanceof ItemGroup);
+            }
+            count++;
+        }
+        return new ItemNameSuggestions(names, groups, count, true);
+    }
+
+    @Nonnull
+    private static ItemNameSuggestions none() {
+        return new ItemNameSuggestions(Collections.<String>emptyList(), Collections.<Boolean>emptyList(), 0, true);
+    }
+
+    /**
+     * Gets relative names of the completions.
+     */
+    @Nonnull
+    List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Gets the number of visible items matching the prefix.
+     * @return Count, which is not bigger than {@link #MAX_COUNT}
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Checks whether all matching items have been counted.
+     * @return {@code false} if there are more than {@link #MAX_COUNT} items
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Converts completions to the response format.
+     * <pre>
+     * {"count":12,"exact":true,"suggestions":[{"name":"folder","group":true},...]}
+     * </pre>
+     */
+    @Nonnull
+    JSONObject toJSON() {
+        final JSONArray suggestions = new JSONArray();
+        for (int i = 0; i < names.size(); i++) {
+            suggestions.add(new JSONObject()
+                    .element("name", names.get(i))
+                    .element("group", groups.get(i).booleanValue()));
+        }
+        return new JSONObject()
+                .element("count", count)
+                .element("exact", exact)
+                .element("suggestions", suggestions);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.model.TopLevelItem;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * A slice of search results.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+public final class ItemsPage {
+
+    @Nonnull
+    private final List<TopLevelItem> items;
+    private final int offset;
+    private final int total;
+    private final boolean complete;
+    private final boolean truncated;
+
+    private ItemsPage(@Nonnull List<TopLevelItem> items, int offset, int total, boolean complete, 
+            boolean truncated) {
+        this.items = items;
+        this.offset = offset;
+        this.total = total;
+        this.complete = complete;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Takes a slice of the search results.
+     * @param allItems All items found by the search, see {@link SearchResult}
+     * @param offset Index of the first item in the slice. 
+     *        Negative values are treated as {@code 0}.
+     * @param limit Maximum number of items in the slice.
+     *        {@code 0} or negative value means no limit.
+     * @return Page of results
+     */
+    @Nonnull
+    static ItemsPage of(@Nonnull List<TopLevelItem> allItems, int offset, int limit) {
+        return of(allItems, offset, limit, true, SearchResult.isTruncated(allItems));
+    }
+
+    /**
+     * Takes a slice of results of a search, which may be still running.
+     * @param allItems Items found so far
+     * @param offset Index of the first item in the slice
+     * @param limit Maximum number of items in the slice
+     * @param complete {@code false} if the search may find more items
+     * @param truncated {@code true} if the search has run out of its time budget
+     * @return Page of results
+     * @see #of(List, int, int)
+     */
+    @Nonnull
+    static ItemsPage of(@Nonnull List<TopLevelItem> allItems, int offset, int limit, boolean complete, 
+            boolean truncated) {
+        final int total = allItems.size();
+        final int from = Math.max(0, Math.min(offset, total));
+        final int to = limit > 0 ? (int) Math.min((long) from + limit, total) : total;
+        return new ItemsPage(Collections.unmodifiableList(allItems.subList(from, to)), from, total, complete, truncated);
+    }
+
+    /**
+     * Gets items on the page.
+     * @return Read-only list of items
+     */
+    @Nonnull
+    public List<TopLevelItem> getItems() {
+        return items;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the total number of items found by the search.
+     * @return Number of items on all pages. 
+     *         It may grow until the search is {@link #isComplete() complete}.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the offset of the next page.
+     * @return Offset, which equals to {@link #getTotal()} for the last page
+     */
+    public int getNextOffset() {
+        return offset + items.size();
+    }
+
+    /**
+     * Checks whether the search has finished.
+     * @return {@code false} if the search is still running in background
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Checks whether the search has run out of its time budget.
+     * @return {@code true} if the search has missed some items
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean hasMore() {
+        return getNextOffset() < total || !complete;
+    }
+}
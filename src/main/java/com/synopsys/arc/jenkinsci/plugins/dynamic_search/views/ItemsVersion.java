@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.View;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Global version of the items and their state.
+ * The version changes whenever an item gets created, deleted, renamed or
+ * updated, a build starts or completes, or a configuration gets saved.
+ * Pages rendered with the same version and the same search query are
+ * considered to be equal.
+ * Searches depend on a part of these changes, so there are separate versions:
+ * <ul>
+ *   <li>{@link #getConfigVersion()} changes with items and configurations 
+ *       of items, views and Jenkins.</li>
+ *   <li>{@link #getRunVersion()} changes with builds.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class ItemsVersion {
+
+    /**
+     * Starts from the current time, so versions do not repeat after restarts.
+     */
+    private static final AtomicLong VERSION = new AtomicLong(System.currentTimeMillis());
+    private static final AtomicLong CONFIG_VERSION = new AtomicLong(System.currentTimeMillis());
+    private static final AtomicLong RUN_VERSION = new AtomicLong(System.currentTimeMillis());
+
+    private ItemsVersion() {
+        // Cannot be instantiated
+    }
+
+    /**
+     * Gets the version of everything, which may be displayed on the page.
+     * @return Version, which changes on any tracked change
+     */
+    static long get() {
+        return VERSION.get();
+    }
+
+    /**
+     * Gets the version of items and their configuration.
+     * Builds, users and other data do not change it.
+     * @return Version, which changes together with results of built-in search predicates
+     */
+    static long getConfigVersion() {
+        return CONFIG_VERSION.get();
+    }
+
+    /**
+     * Gets the version of builds.
+     * @return Version, which changes when builds start, complete or get deleted
+     */
+    static long getRunVersion() {
+        return RUN_VERSION.get();
+    }
+
+    /**
+     * Records a change of items or of their configuration.
+     */
+    static void increment() {
+        CONFIG_VERSION.incrementAndGet();
+        VERSION.incrementAndGet();
+    }
+
+    private static void incrementRuns() {
+        RUN_VERSION.incrementAndGet();
+        VERSION.incrementAndGet();
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            increment();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            increment();
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            increment();
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            increment();
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            increment();
+        }
+
+        @Override
+        public void onLoaded() {
+            increment();
+        }
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onStarted(Run<?, ?> r, TaskListener listener) {
+            incrementRuns();
+        }
+
+        @Override
+        public void onCompleted(Run<?, ?> r, TaskListener listener) {
+            incrementRuns();
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            incrementRuns();
+        }
+    }
+
+    /**
+     * Tracks changes of the view configuration and of other settings, which
+     * may affect the page.
+     * Only saves of items, views and Jenkins are tracked. Builds are tracked
+     * by {@link RunListenerImpl}, and saves of users, fingerprints and other
+     * data happen much more often without changing the page.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveableListenerImpl extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Item || o instanceof View || o instanceof Jenkins) {
+                increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.model.TopLevelItem;
+import hudson.model.View;
+import hudson.views.ViewJobFilter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Executes the chain of {@link ViewJobFilter}s.
+ * <ul>
+ *   <li>The list of all items is built only if a filter accesses it.</li>
+ *   <li>Execution time and selectivity of filters are recorded in {@link JobFilterStats}.</li>
+ *   <li>In the optimized mode, cheap and selective filters run first, and
+ *       the chain stops once there are no items left. It is safe only if all
+ *       filters remove items and never add them, hence the mode is optional.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class JobFilterChain {
+
+    @Nonnull
+    private final List<ViewJobFilter> filters;
+    @CheckForNull
+    private final JobFilterStats stats;
+    private final boolean optimize;
+
+    /**
+     * Constructor.
+     * @param filters Filters in the configured order
+     * @param stats Statistics to be updated. {@code null} if they are not collected.
+     * @param optimize {@code true} if the filters may be reordered and skipped
+     */
+    JobFilterChain(@Nonnull List<ViewJobFilter> filters, @CheckForNull JobFilterStats stats, boolean optimize) {
+        this.filters = filters;
+        this.stats = stats;
+        this.optimize = optimize;
+    }
+
+    /**
+     * Applies the filters.
+     * @param items Items found by the search
+     * @param allItems Provider of all items, which may be added by filters
+     * @param view View, for which the filtering happens
+     * @param cancelled Cancellation check, which is evaluated before each filter
+     * @return Filtered items. Empty if the chain has been cancelled, since
+     *         items, which have not passed all filters, must not be shown.
+     */
+    @Nonnull
+    List<TopLevelItem> apply(@Nonnull List<TopLevelItem> items,
+            @Nonnull Supplier<List<TopLevelItem>> allItems, @Nonnull View view,
+            @Nonnull BooleanSupplier cancelled) {
+        final List<TopLevelItem> lazyAllItems = new LazyList(allItems);
+        List<TopLevelItem> res = items;
+        for (ViewJobFilter filter : plan()) {
+            if (cancelled.getAsBoolean()) {
+                return Collections.emptyList();
+            }
+            final JobFilterStats.Entry entry = stats != null ? stats.get(filter) : null;
+            if (optimize && res.isEmpty()) {
+                if (entry != null) {
+                    entry.recordSkipped();
+                }
+                continue;
+            }
+
+            final int input = res.size();
+            final long start = System.nanoTime();
+            res = filter.filter(res, lazyAllItems, view);
+            final long nanos = System.nanoTime() - start;
+            if (entry != null) {
+                entry.record(nanos, input, res.size());
+            }
+            SearchMetrics.get().getJobFilterStats().get(filter).record(nanos, input, res.size());
+            SearchMetrics.get().recordJobFilter(nanos);
+        }
+        return res;
+    }
+
+    /**
+     * Orders filters for the execution.
+     * In the optimized mode, filters are sorted by their cost per removed item,
+     * filters without statistics keep their positions relative to each other.
+     */
+    @Nonnull
+    private List<ViewJobFilter> plan() {
+        if (!optimize || stats == null || filters.size() < 2) {
+            return filters;
+        }
+        final List<ViewJobFilter> res = new ArrayList<ViewJobFilter>(filters);
+        // The sort is stable, so filters with equal ranks keep the configured order
+        Collections.sort(res, new Comparator<ViewJobFilter>() {
+            @Override
+            public int compare(ViewJobFilter o1, ViewJobFilter o2) {
+                return Double.compare(rank(o1), rank(o2));
+            }
+        });
+        return res;
+    }
+
+    private double rank(@Nonnull ViewJobFilter filter) {
+        final JobFilterStats.Entry entry = stats != null ? stats.peek(filter) : null;
+        if (entry == null || entry.getInvocations() == 0) {
+            return 0; // Run it and learn
+        }
+        final double removed = Math.max(1 - entry.getSelectivity(), 0.001);
+        return entry.getCostPerItem() / removed;
+    }
+
+    /**
+     * List, which is being built on the first access.
+     */
+    @SuppressFBWarnings(value = "EQ_DOESNT_OVERRIDE_EQUALS", justification = "List equality is defined by elements")
+    private static final class LazyList extends AbstractList<TopLevelItem> {
+
+        @Nonnull
+        private final Supplier<List<TopLevelItem>> supplier;
+        @CheckForNull
+        private List<TopLevelItem> delegate;
+
+        LazyList(@Nonnull Supplier<List<TopLevelItem>> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Nonnull
+        private List<TopLevelItem> delegate() {
+            if (delegate == null) {
+                delegate = supplier.get();
+            }
+            return delegate;
+        }
+
+        @Override
+        public TopLevelItem get(int index) {
+            return delegate().get(index);
+        }
+
+        @Override
+        public int size() {
+            return delegate().size();
+        }
+
+        // Filters used to get a mutable copy, so modifications are still supported
+        @Override
+        public TopLevelItem set(int index, TopLevelItem element) {
+            return delegate().set(index, element);
+        }
+
+        @Override
+        public void add(int index, TopLevelItem element) {
+            delegate().add(index, element);
+        }
+
+        @Override
+        public TopLevelItem remove(int index) {
+            return delegate().remove(index);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.views.ViewJobFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Execution statistics of {@link ViewJobFilter}s within a single view.
+ * Filters are tracked by their classes, because search filters are
+ * instantiated for every search.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+public final class JobFilterStats {
+
+    private static final Comparator<Entry> BY_TOTAL_TIME = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return Long.compare(o2.getTotalNanos(), o1.getTotalNanos());
+        }
+    };
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    @Nonnull
+    Entry get(@Nonnull ViewJobFilter filter) {
+        final String key = filter.getClass().getName();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry newEntry = new Entry(key, filter.getDescriptor().getDisplayName());
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    @CheckForNull
+    Entry peek(@Nonnull ViewJobFilter filter) {
+        return entries.get(filter.getClass().getName());
+    }
+
+    /**
+     * Gets statistics of all filters, which have been executed.
+     * @return Entries sorted by the total execution time, the slowest first
+     */
+    @Nonnull
+    public List<Entry> getEntries() {
+        final List<Entry> res = new ArrayList<Entry>(entries.values());
+        Collections.sort(res, BY_TOTAL_TIME);
+        return res;
+    }
+
+    void reset() {
+        entries.clear();
+    }
+
+    /**
+     * Statistics of a single filter class.
+     */
+    @Restricted(NoExternalUse.class)
+    public static final class Entry {
+
+        @Nonnull
+        private final String className;
+        @Nonnull
+        private final String displayName;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder inputItems = new LongAdder();
+        private final LongAdder outputItems = new LongAdder();
+
+        Entry(@Nonnull String className, @Nonnull String displayName) {
+            this.className = className;
+            this.displayName = displayName;
+        }
+
+        void record(long nanos, int input, int output) {
+            invocations.increment();
+            totalNanos.add(nanos);
+            inputItems.add(input);
+            outputItems.add(output);
+        }
+
+        void recordSkipped() {
+            skipped.increment();
+        }
+
+        @Nonnull
+        public String getClassName() {
+            return className;
+        }
+
+        @Nonnull
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        /**
+         * Gets the number of searches, for which the filter has not been
+         * executed, because there was nothing to filter.
+         */
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(getTotalNanos());
+        }
+
+        /**
+         * Gets the average execution time.
+         * @return Time in milliseconds. {@code 0} if the filter has not been executed.
+         */
+        public double getAverageMillis() {
+            final long count = getInvocations();
+            return count > 0 ? getTotalNanos() / 1e6 / count : 0;
+        }
+
+        /**
+         * Gets the ratio of items, which pass the filter.
+         * @return Ratio of output and input items.
+         *         May exceed {@code 1} for filters, which add items.
+         */
+        public double getSelectivity() {
+            final long input = inputItems.sum();
+            return input > 0 ? (double) outputItems.sum() / input : 1;
+        }
+
+        /**
+         * Gets the average cost of the filter per input item.
+         * @return Time in nanoseconds
+         */
+        double getCostPerItem() {
+            final long input = inputItems.sum();
+            return input > 0 ? (double) getTotalNanos() / input : getTotalNanos();
+        }
+    }
+}
@@ -23,40 +23,65 @@
  */
 package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
 
-import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Descriptor;
 import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Items;
+import hudson.model.ListView;
 import hudson.model.TopLevelItem;
 import hudson.model.View;
 import hudson.util.DescribableList;
 import hudson.views.ViewJobFilter;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.servlet.ServletException;
-import org.kohsuke.stapler.StaplerRequest;
+import jenkins.model.Jenkins;
+import org.springframework.security.core.Authentication;
 
 /**
  * Implements a job filter for {@link SimpleSearchView}.
+ * The filter is immutable, so it may be used by concurrent requests without locking.
  * @author Oleg Nenashev
  * @see SimpleSearchView
  * @since 0.1
  */
 public class JobsFilter {
+    
+    /**
+     * Rough size of the filter object and of the empty filter list.
+     */
+    private static final long SHALLOW_SIZE_BYTES = 128;
+    /**
+     * Rough size of a single {@link ViewJobFilter} without its internals.
+     */
+    private static final long JOB_FILTER_SIZE_BYTES = 32;
+    /**
+     * Rough ratio between the compiled {@link Pattern} size and the regex length.
+     */
+    private static final long PATTERN_SIZE_FACTOR = 16;
 
     /**
      * Jobs filters.
      */
     @Nonnull
     private final DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>> jobFilters;
+    /**
+     * Read-only copy of {@link #jobFilters}, which is used by the search.
+     */
+    @Nonnull
+    private final transient List<ViewJobFilter> jobFiltersSnapshot;
     /**
      * Include regex string.
      */
@@ -68,10 +93,31 @@ public class JobsFilter {
      */
     @CheckForNull
     private final Boolean statusFilter;
+    /**
+     * Query over item fields, see {@link FullTextQuery}.
+     * @since 0.4.1
+     */
+    @CheckForNull
+    private final String textQuery;
     /**
      * Compiled include pattern from the includeRegex string.
      */
     private final transient Pattern includePattern;
+    /**
+     * Literal fragments, which must be present in all names matching the includeRegex.
+     */
+    @Nonnull
+    private final transient List<String> includeLiterals;
+    /**
+     * Parsed {@link #textQuery}.
+     */
+    @CheckForNull
+    private final transient FullTextQuery parsedTextQuery;
+    /**
+     * Canonical form of the filter, see {@link #getCacheKey()}.
+     */
+    @CheckForNull
+    private transient volatile String cacheKey;
 
     /**
      * Constructs a filter using specified default values.
@@ -81,78 +127,382 @@ public class JobsFilter {
             @CheckForNull Collection<? extends ViewJobFilter> jobFilters, 
             @CheckForNull String includeRegex, @CheckForNull Boolean statusFilter) 
             throws PatternSyntaxException {
+        this(owner, jobFilters, includeRegex, statusFilter, null);
+    }
+
+    /**
+     * Constructs a filter with the query over item fields.
+     * @throws IllegalArgumentException The regex or the text query is malformed
+     * @since 0.4.1
+     */
+    JobsFilter(
+            @Nonnull View owner, 
+            @CheckForNull Collection<? extends ViewJobFilter> jobFilters, 
+            @CheckForNull String includeRegex, @CheckForNull Boolean statusFilter,
+            @CheckForNull String textQuery) 
+            throws IllegalArgumentException {
         this.jobFilters = (jobFilters != null)
                 ? new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(owner, jobFilters)
                 : new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(owner);
+        this.jobFiltersSnapshot = Collections.unmodifiableList(this.jobFilters.toList());
         this.includeRegex = includeRegex;
         this.statusFilter = statusFilter;
-        this.includePattern = (includeRegex != null) ? Pattern.compile(includeRegex) : null;
+        this.includePattern = (includeRegex != null) ? PatternCache.compile(includeRegex) : null;
+        this.includeLiterals = (includeRegex != null) 
+                ? RegexLiterals.extract(includeRegex) : Collections.<String>emptyList();
+        this.textQuery = textQuery;
+        this.parsedTextQuery = (textQuery != null) ? FullTextQuery.parse(textQuery) : null;
     }
 
     /**
-     * Constructs a filter from the StaplerRequest. This constructor is just a
-     * modified copy of ListView's configure method.
-     *
-     * @param req Stapler Request
-     * @param parentView Parent View, which has created filter
+     * Finds items matching the filter.
+     * Items are taken from the name index of the view's owner group, so 
+     * callers do not need to collect them in advance.
+     * @param input Ignored, kept for the API compatibility
+     * @param view View, for which the filtering happens
+     * @return Matching items, permissions are checked for the current user
      */
-    JobsFilter(StaplerRequest req, View parentView)
-            throws Descriptor.FormException, IOException, ServletException {
-        
-        jobFilters = new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(parentView);
-        jobFilters.rebuildHetero(req, req.getSubmittedForm(), ViewJobFilter.all(), "jobFilters");
-        
-        includeRegex = Util.nullify(req.getParameter("_.includeRegex"));
-        this.includePattern = (includeRegex != null) 
-                ? Pattern.compile(includeRegex) : null;
-         
-        String filter = Util.fixEmpty(req.getParameter("statusFilter"));
-        statusFilter = filter != null ? "1".equals(filter) : null;
-    }
-
-
     @Nonnull
     public List<TopLevelItem> doFilter(
             @Nonnull List<TopLevelItem> input, @Nonnull View view) {
+        return search(view);
+    }
+    
+    /**
+     * Finds items matching the filter.
+     * @param view View, for which the filtering happens
+     * @return Matching items, permissions are checked for the current user
+     * @see #doFilter(List, View)
+     * @since 0.4.1
+     */
+    @Nonnull
+    SearchResult search(@Nonnull View view) {
+        return search(view, () -> false);
+    }
+    
+    /**
+     * Finds items matching the filter unless the search gets cancelled.
+     * @param view View, for which the filtering happens
+     * @param cancelled Cancellation check. It is evaluated before each
+     *        folder and each job filter.
+     * @return Matching items. Empty if the search has been cancelled
+     *         while the job filters were being applied.
+     * @since 0.4.1
+     */
+    @Nonnull
+    SearchResult search(@Nonnull View view, @Nonnull BooleanSupplier cancelled) {
+        final long start = System.nanoTime();
+        final SearchResult res = filter(view, cancelled);
+        SearchMetrics.get().recordFilter(System.nanoTime() - start, res.size());
+        return res;
+    }
+    
+    @Nonnull
+    private SearchResult filter(@Nonnull View view, @Nonnull BooleanSupplier cancelled) {
+        final boolean recurse = isRecursive(view);
+        final SearchResult found;
+        if (recurse) {
+            found = searchRecursively(view, cancelled);
+        } else {
+            final List<TopLevelItem> matches = new ArrayList<TopLevelItem>();
+            final boolean truncated = scanIndex(view, new Visitor() {
+                @Override
+                public boolean visit(TopLevelItem item) {
+                    return matches.add(item);
+                }
+            });
+            found = new SearchResult(matches, truncated);
+        }
+
+        // Check other filter extensions
+        final List<ViewJobFilter> localJobFilters = jobFiltersSnapshot;
+        if (localJobFilters.isEmpty()) {
+            return found;
+        }
+        final ItemGroup<? extends TopLevelItem> group = view.getOwnerItemGroup();
+        final Supplier<List<TopLevelItem>> allItems = recurse 
+                ? () -> Items.getAllItems(group, TopLevelItem.class)
+                : () -> new ArrayList<TopLevelItem>(group.getItems());
+        JobFilterStats stats = null;
+        boolean optimize = false;
+        if (view instanceof SimpleSearchView) {
+            stats = ((SimpleSearchView) view).getJobFilterStats();
+            optimize = ((SimpleSearchView) view).isOptimizeJobFilters();
+        }
+        final JobFilterChain chain = new JobFilterChain(localJobFilters, stats, optimize);
+        return new SearchResult(chain.apply(found, allItems, view, cancelled), found.isTruncated());
+    }
+    
+    /**
+     * Passes matching items to the visitor.
+     * If there are no {@link ViewJobFilter}s and the view does not recurse in
+     * subfolders, items are passed while the search is running.
+     * Otherwise, they are passed once the search completes, and the visitor
+     * may cancel it between folders and job filters.
+     * @param view View, for which the filtering happens
+     * @param visitor Visitor, which may stop the search
+     * @return {@code true} if the search has run out of its time budget
+     * @since 0.4.1
+     */
+    boolean forEachMatch(@Nonnull View view, @Nonnull Visitor visitor) {
+        if (jobFiltersSnapshot.isEmpty() && !isRecursive(view)) {
+            return scanIndex(view, visitor);
+        }
+        final SearchResult found = search(view, visitor::isCancelled);
+        for (TopLevelItem item : found) {
+            if (visitor.isCancelled() || !visitor.visit(item)) {
+                break;
+            }
+        }
+        return found.isTruncated();
+    }
+    
+    /**
+     * Matches name patterns of several filters in a single pass over the index.
+     * Then searches of the filters find the matches cached by the index.
+     * @param index Index of the group, in which the filters search
+     * @param filters Filters of views, which do not recurse in subfolders
+     * @since 0.4.1
+     */
+    static void matchPatterns(@Nonnull ItemNameIndex.Snapshot index, @Nonnull Collection<JobsFilter> filters) {
+        final Map<Pattern, List<String>> patterns = new LinkedHashMap<Pattern, List<String>>();
+        for (JobsFilter filter : filters) {
+            if (filter.includePattern != null) {
+                patterns.put(filter.includePattern, filter.includeLiterals);
+            }
+        }
+        index.matchAll(patterns);
+    }
+    
+    private static boolean isRecursive(@Nonnull View view) {
+        return view instanceof ListView && ((ListView) view).isRecurse();
+    }
+    
+    @Nonnull
+    private SearchResult searchRecursively(@Nonnull View view, @Nonnull BooleanSupplier cancelled) {
+        // Search in folders, items are matched by their relative names
+        int maxDepth = 0, parallelism = 1;
+        if (view instanceof SimpleSearchView) {
+            maxDepth = ((SimpleSearchView) view).getMaxSearchDepth();
+            parallelism = ((SimpleSearchView) view).getSearchParallelism();
+        }
+        return RecursiveItemSearch.search(view.getOwnerItemGroup(), this, 
+                Jenkins.getAuthentication2(), maxDepth, parallelism, cancelled);
+    }
+    
+    /**
+     * Passes matching items of the owner group to the visitor.
+     * @return {@code true} if the search has run out of its time budget
+     */
+    private boolean scanIndex(@Nonnull View view, @Nonnull Visitor visitor) {
+        // The index is already sorted by names, and it caches matches of 
+        // built-in predicates. Items get resolved only for the final set bits
+        final ItemNameIndex.Snapshot index = ItemNameIndex.of(view.getOwnerItemGroup()).getSnapshot();
+        SearchMetrics.get().recordScan(index.size());
+        // Both the snapshot and the filter are immutable, no locking is required
+        final long start = System.nanoTime();
+        final RegexGuard.Deadline deadline = RegexGuard.newDeadline();
+        final BitSet found = evaluate(index, view.getOwnerItemGroup(), deadline);
+        SearchMetrics.get().recordRegexMatch(System.nanoTime() - start);
+        // The index contains all items, so we check permissions on our own
+        final Authentication auth = Jenkins.getAuthentication2();
+        final BitSet visible = VisibleItems.get(index, auth);
+        if (visible != null) {
+            found.and(visible);
+        }
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            TopLevelItem item = index.getItem(i);
+            if ((visible != null || item.getACL().hasPermission2(auth, Item.READ)) && !visitor.visit(item)) {
+                break;
+            }
+        }
+        return deadline.isExceeded();
+    }
+    
+    /**
+     * Evaluates the regex, the status filter and the text query over the index.
+     * @param index Index of the group
+     * @param group Group of indexed items
+     * @param deadline Time budget of the search
+     * @return Positions of matching items, permissions are not being checked
+     */
+    @Nonnull
+    private BitSet evaluate(@Nonnull ItemNameIndex.Snapshot index, @Nonnull ItemGroup<?> group,
+            @Nonnull RegexGuard.Deadline deadline) {
+        final BitSet res;
+        if (includePattern != null) {
+            res = (BitSet) index.matching(includePattern, includeLiterals, deadline).clone();
+        } else {
+            res = index.all();
+        }
         
-        // Dump a names map for projects mathing the regex
-        SortedSet<String> names;     
-        synchronized (this) {
-            names = new TreeSet<String>();
-            for (Item item : view.getOwnerItemGroup().getItems()) {
-                String itemName = item.getName();
-
-                if (includePattern == null) {
-                    names.add(itemName);
-                } else if (includePattern.matcher(itemName).matches()) {
-                    names.add(itemName);
+        // Only projects can be disabled, other items pass the status filter
+        final Boolean localStatusFilter = this.statusFilter;
+        if (localStatusFilter != null) {
+            res.andNot(localStatusFilter ? index.disabledProjects() : index.enabledProjects());
+        }
+        
+        final Set<String> textMatches = res.isEmpty() ? null : findTextMatches();
+        if (textMatches != null) {
+            // Map full names of matching items to positions in the group index
+            final String prefix = group.getFullName().isEmpty() ? "" : group.getFullName() + '/';
+            final BitSet bits = new BitSet(index.size());
+            for (String fullName : textMatches) {
+                if (fullName.startsWith(prefix) && fullName.indexOf('/', prefix.length()) < 0) {
+                    final int pos = index.indexOf(fullName.substring(prefix.length()));
+                    if (pos >= 0) {
+                        bits.set(pos);
+                    }
+                }
+            }
+            res.and(bits);
+        } else if (parsedTextQuery != null) {
+            // The index is being built, so the candidates are checked one by one
+            for (int i = res.nextSetBit(0); i >= 0; i = res.nextSetBit(i + 1)) {
+                try {
+                    if (!matchesText(index.getItem(i), deadline)) {
+                        res.clear(i);
+                    }
+                } catch (RegexGuard.BudgetExceededException ex) {
+                    res.clear(i, index.size());
+                    break;
                 }
             }
         }
+        return res;
+    }
+    
+    /**
+     * Finds items matching the text query in the {@link FullTextIndex}.
+     * The index is not awaited if it is being built.
+     * @return Full names of items in all groups, permissions are not being checked.
+     *         {@code null} if there is no text query or if the index is not ready,
+     *         then items should be checked by {@link #matchesText(TopLevelItem, RegexGuard.Deadline)}.
+     * @since 0.4.1
+     */
+    @CheckForNull
+    Set<String> findTextMatches() {
+        if (parsedTextQuery == null) {
+            return null;
+        }
+        final FullTextIndex index = FullTextIndex.getIfReady();
+        return index != null ? parsedTextQuery.evaluate(index) : null;
+    }
+    
+    /**
+     * Checks whether the item matches the text query without the index.
+     * @param item Item
+     * @return {@code true} if the item matches or if there is no text query
+     * @since 0.4.1
+     */
+    boolean matchesText(@Nonnull TopLevelItem item) {
+        return parsedTextQuery == null || parsedTextQuery.matches(item);
+    }
+    
+    /**
+     * Checks whether the item matches the text query without the index
+     * within the time budget of the search.
+     * @param item Item
+     * @param deadline Time budget of the search
+     * @return {@code true} if the item matches or if there is no text query
+     * @throws RegexGuard.BudgetExceededException The time budget has been exceeded
+     * @since 0.4.1
+     */
+    boolean matchesText(@Nonnull TopLevelItem item, @Nonnull RegexGuard.Deadline deadline) 
+            throws RegexGuard.BudgetExceededException {
+        if (parsedTextQuery == null) {
+            return true;
+        }
+        deadline.check();
+        return parsedTextQuery.matches(item);
+    }
+    
+    /**
+     * Checks whether the item matches the name pattern and the status filter.
+     * Permissions are not being checked.
+     * @param name Name of the item to be matched by the pattern
+     * @param item Item
+     * @param deadline Time budget of the search
+     * @return {@code true} if the item matches the filter
+     * @throws RegexGuard.BudgetExceededException The time budget has been exceeded
+     */
+    boolean matches(@Nonnull String name, @Nonnull TopLevelItem item, @Nonnull RegexGuard.Deadline deadline) 
+            throws RegexGuard.BudgetExceededException {
+        if (includePattern != null && !deadline.matches(includePattern, name)) {
+            return false;
+        }
+        
+        // Add if no status filter or filter matches enabled/disabled status:
+        final Boolean localStatusFilter = this.statusFilter; // capture the value to isolate us from concurrent update
+        return localStatusFilter == null
+                || !(item instanceof AbstractProject)
+                || ((AbstractProject) item).isDisabled() ^ localStatusFilter;
+    }
 
-        // Filter by status
-        Boolean localStatusFilter = this.statusFilter; // capture the value to isolate us from concurrent update
-        List<TopLevelItem> items = new ArrayList<TopLevelItem>(names.size());
-        for (String n : names) {
-            TopLevelItem item = view.getOwnerItemGroup().getItem(n);
-            // Add if no status filter or filter matches enabled/disabled status:
-            if (item != null && (localStatusFilter == null
-                    || !(item instanceof AbstractProject)
-                    || ((AbstractProject) item).isDisabled() ^ localStatusFilter)) {
-                items.add(item);
-            }
+    /**
+     * Estimates the heap size retained by the filter.
+     * The estimate is rough, internals of {@link ViewJobFilter}s are not included.
+     * @return Size in bytes
+     */
+    long estimateRetainedBytes() {
+        long res = SHALLOW_SIZE_BYTES + JOB_FILTER_SIZE_BYTES * jobFiltersSnapshot.size();
+        if (includeRegex != null) {
+            // The string itself and the compiled pattern, which is usually several times bigger
+            res += 2L * includeRegex.length() + PATTERN_SIZE_FACTOR * includeRegex.length();
         }
+        if (textQuery != null) {
+            res += 2L * textQuery.length() + PATTERN_SIZE_FACTOR * textQuery.length();
+        }
+        return res;
+    }
 
-        // Check other filter extensions
-        Iterable<ViewJobFilter> localJobFilters = getJobFilters();
-        List<TopLevelItem> allItems = new ArrayList<TopLevelItem>(view.getOwnerItemGroup().getItems());
-        for (ViewJobFilter jobFilter : localJobFilters) {
-            items = jobFilter.filter(items, allItems, view);
+    /**
+     * Gets the canonical form of the filter.
+     * Filters with equal keys find the same items.
+     * @return Key, which includes the regex, the status filter, the text query
+     *         and the serialized configuration of job filters
+     * @since 0.4.1
+     */
+    @Nonnull
+    String getCacheKey() {
+        String key = cacheKey;
+        if (key == null) {
+            final StringBuilder buf = new StringBuilder();
+            // The length prefix separates a missing regex from the "null" one 
+            // and prevents regexes from spoofing other parts of the key
+            if (includeRegex != null) {
+                buf.append(includeRegex.length()).append(':').append(includeRegex);
+            } else {
+                buf.append('-');
+            }
+            buf.append('\n').append(statusFilter).append('\n');
+            if (textQuery != null) {
+                buf.append(textQuery.length()).append(':').append(textQuery);
+            } else {
+                buf.append('-');
+            }
+            for (ViewJobFilter filter : jobFiltersSnapshot) {
+                buf.append('\n').append(Items.XSTREAM2.toXML(filter));
+            }
+            key = buf.toString();
+            cacheKey = key;
         }
+        return key;
+    }
 
-        return items;
+    /**
+     * Checks whether the filter invokes {@link ViewJobFilter}s.
+     * @return {@code true} if there are job filters
+     * @since 0.4.1
+     */
+    boolean hasJobFilters() {
+        return !jobFiltersSnapshot.isEmpty();
     }
 
+    /**
+     * Gets job filters.
+     * @return Configured filters. Modifications of the list do not affect the search.
+     */
     @Nonnull
     public DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>> getJobFilters() {
         return jobFilters;
@@ -172,4 +522,36 @@ public class JobsFilter {
     public Boolean getStatusFilter() {
         return statusFilter;
     }
+
+    /**
+     * Gets the query over item fields.
+     * @return Query, see {@link FullTextQuery}. {@code null} if it is not specified.
+     * @since 0.4.1
+     */
+    @CheckForNull
+    public String getTextQuery() {
+        return textQuery;
+    }
+    
+    /**
+     * Receives items found by the filter.
+     * @since 0.4.1
+     */
+    interface Visitor {
+        
+        /**
+         * Receives the next item.
+         * @param item Item matching the filter
+         * @return {@code false} to stop the search
+         */
+        boolean visit(@Nonnull TopLevelItem item);
+
+        /**
+         * Checks whether the search should stop before the next step.
+         * @return {@code true} to stop the search
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
 }
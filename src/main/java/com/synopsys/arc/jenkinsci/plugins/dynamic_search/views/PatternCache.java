@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Stores compiled regular expressions, which are shared by all views and sessions.
+ * Users usually run the same small set of expressions, so there is no need to
+ * compile them again on every request.
+ * {@link Pattern}s are immutable and may be used by multiple threads.
+ * Lookups take no locks, the least recently used patterns get evicted once
+ * the cache exceeds {@link #MAX_SIZE}.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class PatternCache {
+
+    /**
+     * Maximum number of cached patterns.
+     */
+    static final int MAX_SIZE = SystemProperties.getInteger(
+            PatternCache.class.getName() + ".maxSize", 256);
+
+    private static final ConcurrentMap<String, Entry> CACHE = new ConcurrentHashMap<String, Entry>();
+
+    private PatternCache() {
+        // Cannot be instantiated
+    }
+
+    /**
+     * Gets a compiled pattern for the regex.
+     * @param regex Regular expression
+     * @return Compiled pattern
+     * @throws PatternSyntaxException The expression is invalid
+     */
+    @Nonnull
+    static Pattern compile(@Nonnull String regex) throws PatternSyntaxException {
+        final Entry entry = CACHE.get(regex);
+        SearchMetrics.get().recordPatternCache(entry != null);
+        if (entry != null) {
+            entry.lastUsed = System.currentTimeMillis();
+            return entry.pattern;
+        }
+        
+        // Concurrent requests may compile the same pattern, it is cheaper than locking
+        final Pattern pattern = Pattern.compile(regex);
+        CACHE.put(regex, new Entry(pattern));
+        if (CACHE.size() > MAX_SIZE) {
+            evict();
+        }
+        return pattern;
+    }
+    
+    /**
+     * Shrinks the cache below {@link #MAX_SIZE}.
+     * 10% of entries get removed at once in order to amortize the sorting.
+     */
+    private static void evict() {
+        final List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(CACHE.entrySet());
+        Collections.sort(entries, (a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+        final int toRemove = entries.size() - (MAX_SIZE - MAX_SIZE / 10);
+        for (int i = 0; i < toRemove && i < entries.size(); i++) {
+            CACHE.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    private static final class Entry {
+
+        @Nonnull
+        private final Pattern pattern;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Entry(@Nonnull Pattern pattern) {
+            this.pattern = pattern;
+        }
+    }
+}
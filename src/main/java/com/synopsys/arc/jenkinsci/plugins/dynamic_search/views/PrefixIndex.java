@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.Arrays;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Case-insensitive prefix index over a sorted array of names.
+ * Names are stored in lower case and sorted, so all names starting with a 
+ * prefix form a continuous range, which is found by two binary searches.
+ * The index is used for completions of item names while the user is typing.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class PrefixIndex {
+
+    /**
+     * Lower-case names in the ascending order.
+     */
+    @Nonnull
+    private final String[] keys;
+    /**
+     * Positions of names in the original array for every key.
+     */
+    @Nonnull
+    private final int[] positions;
+
+    private PrefixIndex(@Nonnull String[] keys, @Nonnull int[] positions) {
+        this.keys = keys;
+        this.positions = positions;
+    }
+
+    @Nonnull
+    static PrefixIndex build(@Nonnull String[] names) {
+        final Integer[] order = new Integer[names.length];
+        final String[] lowerCase = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            order[i] = i;
+            lowerCase[i] = toKey(names[i]);
+        }
+        // Ties keep the case-sensitive order of the original array
+        Arrays.sort(order, (a, b) -> {
+            final int res = lowerCase[a].compareTo(lowerCase[b]);
+            return res != 0 ? res : Integer.compare(a, b);
+        });
+
+        final String[] keys = new String[names.length];
+        final int[] positions = new int[names.length];
+        for (int k = 0; k < order.length; k++) {
+            positions[k] = order[k];
+            keys[k] = lowerCase[order[k]];
+        }
+        return new PrefixIndex(keys, positions);
+    }
+
+    @Nonnull
+    static String toKey(@Nonnull String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the position of a name in the original array.
+     * @param k Index of the key, see {@link #from(String)} and {@link #to(String, int)}
+     */
+    int position(int k) {
+        return positions[k];
+    }
+
+    /**
+     * Finds the first key, which is not less than the prefix.
+     * @param prefix Prefix in lower case, see {@link #toKey(String)}
+     * @return Index of the first key starting with the prefix, if there is one
+     */
+    int from(@Nonnull String prefix) {
+        int low = 0, high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the end of the range of keys starting with the prefix.
+     * @param prefix Prefix in lower case, see {@link #toKey(String)}
+     * @param from Start of the range, see {@link #from(String)}
+     * @return Index after the last key starting with the prefix
+     */
+    int to(@Nonnull String prefix, int from) {
+        int low = from, high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
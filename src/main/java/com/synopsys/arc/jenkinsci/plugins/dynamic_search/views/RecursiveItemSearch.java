@@ -0,0 +1,275 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.init.Terminator;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.TopLevelItem;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Searches items in the item group and in all nested item groups (folders,
+ * multi-branch projects, etc.).
+ * Nested groups may be traversed in parallel by a {@link ForkJoinPool}, 
+ * which is shared by all searches. Each search forks at most as many tasks
+ * as its parallelism allows.
+ * Items are being matched by their names relative to the root group, e.g.
+ * {@code folder/subfolder/job}.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class RecursiveItemSearch {
+
+    /**
+     * Pool of all parallel searches. Threads are started on demand and stop
+     * once they are idle.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), 
+            pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Dynamic Search View folder search " + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+    private static final Comparator<Match> BY_NAME = new Comparator<Match>() {
+        @Override
+        public int compare(Match o1, Match o2) {
+            return o1.name.compareTo(o2.name);
+        }
+    };
+
+    @Nonnull
+    private final JobsFilter filter;
+    @Nonnull
+    private final Authentication auth;
+    private final int maxDepth;
+    private final boolean parallel;
+    @Nonnull
+    private final RegexGuard.Deadline deadline = RegexGuard.newDeadline();
+    /**
+     * Full names of items matching the text query. {@code null} if there is 
+     * no query or if the index is not ready, then items are checked one by one.
+     */
+    @CheckForNull
+    private final Set<String> textMatches;
+    /**
+     * Set once the time budget is exceeded, all tasks stop then.
+     */
+    private volatile boolean truncated;
+    /**
+     * Checked before each group, the search stops once it returns {@code true}.
+     */
+    @Nonnull
+    private final BooleanSupplier cancelled;
+    private volatile boolean stopped;
+    /**
+     * Number of tasks, which may be forked in addition to running ones.
+     */
+    @Nonnull
+    private final AtomicInteger forkSlots;
+
+    private RecursiveItemSearch(@Nonnull JobsFilter filter, @Nonnull Authentication auth,
+            int maxDepth, int parallelism, @Nonnull BooleanSupplier cancelled) {
+        this.filter = filter;
+        this.auth = auth;
+        this.maxDepth = maxDepth;
+        this.parallel = parallelism > 1;
+        this.forkSlots = new AtomicInteger(parallelism - 1);
+        this.cancelled = cancelled;
+        this.textMatches = filter.findTextMatches();
+    }
+
+    /**
+     * Finds items matching the filter.
+     * @param root Root item group
+     * @param filter Filter to be applied to all items
+     * @param auth Authentication, for which the permissions are checked.
+     *        Items in folders, which are not visible to the user, are not being
+     *        checked at all.
+     * @param maxDepth Maximum number of nested group levels to search in.
+     *        {@code 0} or negative value means no limit.
+     * @param parallelism Number of threads, which may be used for the search.
+     *        The request thread performs the search on its own if the value
+     *        is {@code 1} or less.
+     * @param cancelled Cancellation check. It is evaluated before each
+     *        group, and the search stops with items found so far once it
+     *        returns {@code true}.
+     * @return Items sorted by their relative names. If the search exceeds
+     *         the {@link RegexGuard time budget}, items found so far, and
+     *         the result is {@link SearchResult#isTruncated() truncated}.
+     */
+    @Nonnull
+    static SearchResult search(@Nonnull ItemGroup<? extends Item> root, @Nonnull JobsFilter filter,
+            @Nonnull Authentication auth, int maxDepth, int parallelism, @Nonnull BooleanSupplier cancelled) {
+        final int effectiveParallelism = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+        final RecursiveItemSearch search = new RecursiveItemSearch(filter, auth, maxDepth, effectiveParallelism, cancelled);
+        final GroupTask rootTask = new GroupTask(search, root, "", 0);
+
+        final List<Match> matches;
+        if (search.parallel) {
+            matches = POOL.invoke(rootTask);
+        } else {
+            matches = rootTask.compute();
+        }
+
+        Collections.sort(matches, BY_NAME);
+        final List<TopLevelItem> res = new ArrayList<TopLevelItem>(matches.size());
+        for (Match match : matches) {
+            res.add(match.item);
+        }
+        return new SearchResult(res, search.truncated);
+    }
+
+    /**
+     * Takes a slot for a forked task.
+     * @return {@code false} if the task should run in the current thread
+     */
+    private boolean tryAcquireFork() {
+        if (!parallel) {
+            return false;
+        }
+        int slots;
+        do {
+            slots = forkSlots.get();
+            if (slots <= 0) {
+                return false;
+            }
+        } while (!forkSlots.compareAndSet(slots, slots - 1));
+        return true;
+    }
+
+    /**
+     * Stops the pool on shutdown.
+     */
+    @Terminator
+    @Restricted(NoExternalUse.class)
+    public static void onShutdown() {
+        POOL.shutdownNow();
+    }
+
+    private static final class Match {
+        private final String name;
+        private final TopLevelItem item;
+
+        Match(String name, TopLevelItem item) {
+            this.name = name;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Searches a single group and forks tasks for nested ones.
+     */
+    @SuppressFBWarnings(value = "SE_BAD_FIELD", justification = "Tasks are never serialized")
+    private static final class GroupTask extends RecursiveTask<List<Match>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RecursiveItemSearch search;
+        private final ItemGroup<? extends Item> group;
+        private final String prefix;
+        private final int depth;
+
+        GroupTask(@Nonnull RecursiveItemSearch search, 
+                @Nonnull ItemGroup<? extends Item> group, @Nonnull String prefix, int depth) {
+            this.search = search;
+            this.group = group;
+            this.prefix = prefix;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<Match> compute() {
+            if (search.stopped || search.cancelled.getAsBoolean()) {
+                search.stopped = true;
+                return new ArrayList<Match>();
+            }
+            final ItemNameIndex.Snapshot index = ItemNameIndex.of(group).getSnapshot();
+            final BitSet visible = VisibleItems.get(index, search.auth);
+            final boolean descend = search.maxDepth <= 0 || depth < search.maxDepth;
+            final List<Match> res = new ArrayList<Match>();
+            final List<GroupTask> subtasks = new ArrayList<GroupTask>();
+            SearchMetrics.get().recordScan(index.size());
+
+            for (int i = 0; i < index.size(); i++) {
+                if (search.truncated || search.stopped) {
+                    break;
+                }
+                final TopLevelItem item = index.getItem(i);
+                final String name = prefix + index.getName(i);
+                final boolean nested = descend && item instanceof ItemGroup;
+                final boolean matches;
+                try {
+                    matches = search.filter.matches(name, item, search.deadline)
+                            && (search.textMatches != null 
+                                    ? search.textMatches.contains(item.getFullName()) 
+                                    : search.filter.matchesText(item, search.deadline));
+                } catch (RegexGuard.BudgetExceededException ex) {
+                    search.truncated = true;
+                    break;
+                }
+                if (!nested && !matches) {
+                    continue;
+                }
+                if (visible != null ? !visible.get(i) : !item.getACL().hasPermission2(search.auth, Item.READ)) {
+                    continue;
+                }
+
+                if (matches) {
+                    res.add(new Match(name, item));
+                }
+                if (nested) {
+                    GroupTask subtask = new GroupTask(search, (ItemGroup<? extends Item>) item, name + "/", depth + 1);
+                    if (search.tryAcquireFork()) {
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    } else {
+                        res.addAll(subtask.compute());
+                    }
+                }
+            }
+
+            for (GroupTask subtask : subtasks) {
+                res.addAll(subtask.join());
+                search.forkSlots.incrementAndGet();
+            }
+            return res;
+        }
+    }
+}
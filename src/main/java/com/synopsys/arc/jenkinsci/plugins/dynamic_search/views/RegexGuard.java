@@ -0,0 +1,283 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Protects searches from regular expressions with catastrophic backtracking.
+ * <ul>
+ *   <li>Searches have a time budget of {@link #TIME_BUDGET_MS}. Matching is
+ *       stopped once it is exceeded, and the search returns items found so far.</li>
+ *   <li>The {@link Deadline} tells whether the search has been stopped, so 
+ *       the {@link SearchResult} can warn about incomplete results.</li>
+ *   <li>{@link #findNestedRepetition(String)} detects the most common 
+ *       catastrophic construct for the form validation.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class RegexGuard {
+    
+    /**
+     * Maximum time of matching names in a single search.
+     * {@code 0} or negative value disables the limit.
+     */
+    static final long TIME_BUDGET_MS = SystemProperties.getLong(
+            RegexGuard.class.getName() + ".timeBudgetMs", 2000L);
+    
+    /**
+     * Number of characters accessed by the regex engine between clock checks.
+     */
+    private static final int CHECK_INTERVAL_MASK = 0xFFF;
+    
+    private RegexGuard() {
+        // Cannot be instantiated
+    }
+    
+    /**
+     * Starts the time budget of a search.
+     * @return Deadline, which may be shared by threads of the search
+     */
+    @Nonnull
+    static Deadline newDeadline() {
+        return new Deadline(TIME_BUDGET_MS > 0 
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIME_BUDGET_MS) : 0);
+    }
+    
+    /**
+     * Finds a repeated group, which contains a repetition itself, e.g. {@code (a+)+}.
+     * Such patterns take exponential time on names, which almost match them.
+     * @param regex Regular expression
+     * @return The group with its quantifier. {@code null} if there is no such group.
+     */
+    @CheckForNull
+    static String findNestedRepetition(@Nonnull String regex) {
+        // Start positions of open groups and whether they contain a repetition
+        final Deque<int[]> groups = new ArrayDeque<int[]>();
+        final int length = regex.length();
+        for (int i = 0; i < length; i++) {
+            final char c = regex.charAt(i);
+            switch (c) {
+                case '\\':
+                    if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+                        final int end = regex.indexOf("\\E", i + 2);
+                        i = end < 0 ? length : end + 1;
+                    } else {
+                        i++;
+                    }
+                    break;
+                case '[':
+                    i = skipCharacterClass(regex, i);
+                    break;
+                case '(':
+                    groups.push(new int[] {i, 0});
+                    break;
+                case ')':
+                    if (groups.isEmpty()) {
+                        break; // Invalid pattern, the compiler reports it
+                    }
+                    final int[] group = groups.pop();
+                    final int quantifierEnd = unboundedQuantifierEnd(regex, i + 1);
+                    if (group[1] != 0 && quantifierEnd > 0) {
+                        return regex.substring(group[0], quantifierEnd);
+                    }
+                    if ((group[1] != 0 || quantifierEnd > 0) && !groups.isEmpty()) {
+                        groups.peek()[1] = 1;
+                    }
+                    break;
+                default:
+                    if (!groups.isEmpty() && unboundedQuantifierEnd(regex, i) > 0) {
+                        groups.peek()[1] = 1;
+                    }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the end of the unbounded quantifier: {@code *}, {@code +} or {@code {n,}}.
+     * @return Position after the quantifier. {@code -1} if there is no such quantifier.
+     */
+    private static int unboundedQuantifierEnd(@Nonnull String regex, int pos) {
+        if (pos >= regex.length()) {
+            return -1;
+        }
+        final char c = regex.charAt(pos);
+        if (c == '*' || c == '+') {
+            return pos + 1;
+        }
+        if (c == '{') {
+            final int end = regex.indexOf('}', pos);
+            if (end > 0 && regex.charAt(end - 1) == ',') {
+                return end + 1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Skips the character class, including nested ones.
+     * @return Position of the closing bracket
+     */
+    private static int skipCharacterClass(@Nonnull String regex, int start) {
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+                // A bracket right after the opening one is a literal
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return regex.length();
+    }
+    
+    /**
+     * Time budget of a search.
+     */
+    static final class Deadline {
+        
+        /**
+         * {@link System#nanoTime()} of the deadline. {@code 0} for no limit.
+         */
+        private final long end;
+        /**
+         * Counter of checks. Concurrent updates may be lost, it only delays the check.
+         */
+        private int ticks;
+        /**
+         * Set once the search gets stopped by the deadline.
+         */
+        private volatile boolean exceeded;
+        
+        private Deadline(long end) {
+            this.end = end;
+        }
+        
+        boolean isExpired() {
+            return end != 0 && System.nanoTime() - end > 0;
+        }
+        
+        void check() throws BudgetExceededException {
+            if ((++ticks & CHECK_INTERVAL_MASK) == 0 && isExpired()) {
+                exceeded = true;
+                throw new BudgetExceededException();
+            }
+        }
+        
+        /**
+         * Checks whether matching has been stopped by the deadline.
+         * @return {@code true} if results of the search are incomplete
+         */
+        boolean isExceeded() {
+            return exceeded;
+        }
+        
+        /**
+         * Checks whether the name fully matches the pattern within the budget.
+         * @param matcher Matcher of the pattern, it is being reset
+         * @param name Name to be matched
+         * @return {@code true} if the name matches
+         * @throws BudgetExceededException The time budget has been exceeded
+         */
+        boolean matches(@Nonnull Matcher matcher, @Nonnull String name) throws BudgetExceededException {
+            if (end == 0) {
+                return matcher.reset(name).matches();
+            }
+            return matcher.reset(new GuardedSequence(name, this)).matches();
+        }
+        
+        boolean matches(@Nonnull Pattern pattern, @Nonnull String name) throws BudgetExceededException {
+            return matches(pattern.matcher(""), name);
+        }
+    }
+    
+    /**
+     * Thrown by the regex engine once the time budget is exceeded.
+     */
+    static final class BudgetExceededException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            // The exception is a part of the control flow, the stack trace is not needed
+            super("The search time budget has been exceeded", null, false, false);
+        }
+    }
+    
+    /**
+     * Checks the deadline whenever the regex engine reads a character.
+     * Backtracking reads characters again and again, so it cannot run unnoticed.
+     */
+    private static final class GuardedSequence implements CharSequence {
+        
+        @Nonnull
+        private final String value;
+        @Nonnull
+        private final Deadline deadline;
+
+        GuardedSequence(@Nonnull String value, @Nonnull Deadline deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            deadline.check();
+            return value.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new GuardedSequence(value.substring(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Extracts literal fragments, which must be present in any string fully 
+ * matching the regular expression.
+ * The parser is conservative: constructs it does not understand break the 
+ * current fragment, and expressions with top-level alternations or embedded 
+ * flags produce no fragments at all.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class RegexLiterals {
+
+    /**
+     * Escaped characters, which form two-character constructs matching
+     * something other than themselves.
+     */
+    private static final String SIMPLE_ESCAPES = "dDsSwWhHvVbBAGzZR";
+
+    private RegexLiterals() {
+        // Cannot be instantiated
+    }
+
+    /**
+     * Extracts required literal fragments from the regex.
+     * @param regex Regular expression
+     * @return Fragments. Empty list if no fragments can be extracted safely.
+     */
+    @Nonnull
+    static List<String> extract(@Nonnull String regex) {
+        if (regex.contains("(?")) { // Flags may change the meaning of the whole expression
+            return Collections.emptyList();
+        }
+
+        final List<String> res = new ArrayList<String>();
+        final StringBuilder current = new StringBuilder();
+        final int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            final char c = regex.charAt(i);
+            switch (c) {
+                case '|': // Top-level alternation, nothing is required
+                    return Collections.emptyList();
+                case '(':
+                    i = skipGroup(regex, i);
+                    if (i < 0) {
+                        return Collections.emptyList();
+                    }
+                    flush(current, res);
+                    i = skipQuantifier(regex, i);
+                    continue;
+                case '[':
+                    i = skipCharClass(regex, i);
+                    if (i < 0) {
+                        return Collections.emptyList();
+                    }
+                    flush(current, res);
+                    i = skipQuantifier(regex, i);
+                    continue;
+                case '*':
+                case '?':
+                case '{':
+                    // The previous character is optional
+                    if (current.length() > 0) {
+                        current.setLength(current.length() - 1);
+                    }
+                    flush(current, res);
+                    i = skipQuantifier(regex, i);
+                    continue;
+                case '+':
+                    // The previous character is required, but it may repeat
+                    flush(current, res);
+                    i = skipQuantifier(regex, i);
+                    continue;
+                case '.':
+                case '^':
+                case '$':
+                    flush(current, res);
+                    i++;
+                    continue;
+                case '\\':
+                    if (i + 1 >= length) {
+                        return Collections.emptyList();
+                    }
+                    final char next = regex.charAt(i + 1);
+                    if (next == 'Q') { // Quoted sequence
+                        int end = regex.indexOf("\\E", i + 2);
+                        String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                        i = end < 0 ? length : end + 2;
+                        if (isQuantifier(regex, i)) {
+                            // Only the last character of the quoted sequence is optional
+                            current.append(quoted, 0, Math.max(0, quoted.length() - 1));
+                            flush(current, res);
+                            i = skipQuantifier(regex, i);
+                        } else {
+                            current.append(quoted);
+                        }
+                        continue;
+                    }
+                    if (SIMPLE_ESCAPES.indexOf(next) >= 0) { // Predefined classes and boundaries
+                        flush(current, res);
+                        i = skipQuantifier(regex, i + 2);
+                        continue;
+                    }
+                    if (Character.isLetterOrDigit(next)) { // Escapes of variable length, back references, etc.
+                        return Collections.emptyList();
+                    }
+                    current.append(next);
+                    i += 2;
+                    continue;
+                default:
+                    current.append(c);
+                    i++;
+            }
+        }
+        flush(current, res);
+        return res;
+    }
+
+    private static void flush(@Nonnull StringBuilder current, @Nonnull List<String> res) {
+        if (current.length() > 0) {
+            res.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isQuantifier(@Nonnull String regex, int i) {
+        if (i >= regex.length()) {
+            return false;
+        }
+        final char c = regex.charAt(i);
+        return c == '*' || c == '?' || c == '+' || c == '{';
+    }
+
+    /**
+     * Skips the quantifier at the position, including lazy and possessive modifiers.
+     * @return Position after the quantifier
+     */
+    private static int skipQuantifier(@Nonnull String regex, int i) {
+        if (!isQuantifier(regex, i)) {
+            return i;
+        }
+        if (regex.charAt(i) == '{') {
+            int end = regex.indexOf('}', i);
+            i = end < 0 ? regex.length() : end + 1;
+        } else {
+            i++;
+        }
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips the group starting at the position.
+     * @return Position after the closing bracket or {@code -1} if the group is not closed
+     */
+    private static int skipGroup(@Nonnull String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Skips the character class starting at the position.
+     * @return Position after the closing bracket or {@code -1} if the class is not closed
+     */
+    private static int skipCharClass(@Nonnull String regex, int i) {
+        int depth = 0;
+        i++;
+        depth++;
+        // A closing bracket right after the opening one is a literal
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.PeriodicWork;
+import hudson.model.TopLevelItem;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.views.ViewJobFilter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Search, which has been saved in a {@link SimpleSearchView} together with its results.
+ * <ul>
+ *   <li>The search is evaluated once, when it gets saved. Results are 
+ *       stored as full names of items in a separate file under 
+ *       {@link #getResultsDir()}, so their updates do not save the view 
+ *       configuration.</li>
+ *   <li>{@link ItemListener} events re-test only the affected item, so 
+ *       opening the search takes time proportional to the number of results.</li>
+ *   <li>Searches with {@link ViewJobFilter}s cannot be re-tested for a single
+ *       item, because filters may depend on other items and on the current
+ *       user. Their results are not saved, the view searches them for every 
+ *       user like other searches.</li>
+ *   <li>Changed results are saved to the disk periodically and on shutdown.
+ *       Items changed on the disk while Jenkins is not running are taken
+ *       into account once the search gets saved again. If the file is 
+ *       missing, e.g. after the view has been renamed, the search runs again.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+public final class SavedSearch {
+    
+    /**
+     * Views with saved searches, which get notified about item changes.
+     */
+    private static final Set<SimpleSearchView> VIEWS = Collections.newSetFromMap(
+            new WeakHashMap<SimpleSearchView, Boolean>());
+    
+    /**
+     * Views, which results have changed since the last save.
+     */
+    private static final Set<SimpleSearchView> DIRTY = Collections.newSetFromMap(
+            new ConcurrentHashMap<SimpleSearchView, Boolean>());
+    
+    @Nonnull
+    private final String name;
+    @CheckForNull
+    private final String includeRegex;
+    @CheckForNull
+    private final Boolean statusFilter;
+    @CheckForNull
+    private final String textQuery;
+    @Nonnull
+    private final List<ViewJobFilter> jobFilters;
+    /**
+     * Full names of matching items. Permissions are not being checked.
+     * {@code null} until they are loaded from the {@link #getResultsFile(View) file}.
+     * Guarded by the instance.
+     */
+    @CheckForNull
+    private transient TreeSet<String> items;
+    
+    @CheckForNull
+    private transient volatile JobsFilter filter;
+
+    SavedSearch(@Nonnull String name, @Nonnull JobsFilter filter) {
+        this.name = name;
+        this.includeRegex = filter.getIncludeRegex();
+        this.statusFilter = filter.getStatusFilter();
+        this.textQuery = filter.getTextQuery();
+        this.jobFilters = new ArrayList<ViewJobFilter>(filter.getJobFilters().toList());
+        this.filter = filter;
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the query string, which opens the search in the view.
+     * @return Query string without the leading {@code ?}
+     */
+    @Nonnull
+    public String getUrlQuery() {
+        try {
+            return "savedSearch=" + URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 is not supported", ex);
+        }
+    }
+    
+    /**
+     * Gets the filter of the search.
+     * @param view View, which owns the search
+     * @return Filter
+     */
+    @Nonnull
+    JobsFilter getFilter(@Nonnull View view) {
+        JobsFilter f = filter;
+        if (f == null) {
+            // The regex and the query have been validated before the search was saved
+            f = new JobsFilter(view, jobFilters, includeRegex, statusFilter, textQuery);
+            filter = f;
+        }
+        return f;
+    }
+    
+    /**
+     * Gets saved results, which are visible to the current user.
+     * Searches with job filters are run by the view instead.
+     * @param view View, which owns the search
+     * @return Read-only list of items sorted by their names
+     */
+    @Nonnull
+    public List<TopLevelItem> getItems(@Nonnull SimpleSearchView view) {
+        if (!isIncremental()) {
+            return view.calculateItems(getFilter(view));
+        }
+        load(view);
+        final List<String> names;
+        synchronized (this) {
+            names = new ArrayList<String>(items);
+        }
+        
+        final Jenkins jenkins = Jenkins.get();
+        final Authentication auth = Jenkins.getAuthentication2();
+        final List<TopLevelItem> res = new ArrayList<TopLevelItem>(names.size());
+        // Parent folders may be hidden from the user like in other searches
+        try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+            for (String fullName : names) {
+                final TopLevelItem item = jenkins.getItemByFullName(fullName, TopLevelItem.class);
+                if (item != null && VisibleItems.isVisible(item, auth)) {
+                    res.add(item);
+                }
+            }
+        }
+        return Collections.unmodifiableList(res);
+    }
+    
+    /**
+     * Runs the search and replaces the results.
+     * Searches with job filters keep no results.
+     * @param view View, which owns the search
+     */
+    void evaluate(@Nonnull View view) {
+        if (!isIncremental()) {
+            return;
+        }
+        final List<TopLevelItem> found;
+        try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+            found = getFilter(view).doFilter(Collections.<TopLevelItem>emptyList(), view);
+        }
+        final List<String> names = new ArrayList<String>(found.size());
+        for (TopLevelItem item : found) {
+            names.add(item.getFullName());
+        }
+        synchronized (this) {
+            items = new TreeSet<String>(names);
+        }
+    }
+    
+    /**
+     * Loads the results if they have not been loaded yet.
+     * If they cannot be read, the search runs again.
+     * @param view View, which owns the search
+     */
+    private void load(@Nonnull SimpleSearchView view) {
+        synchronized (this) {
+            if (items != null) {
+                return;
+            }
+            final XmlFile file = getResultsFile(view);
+            if (file.exists()) {
+                try {
+                    final Object stored = file.read();
+                    if (stored instanceof TreeSet) {
+                        @SuppressWarnings("unchecked")
+                        final TreeSet<String> names = (TreeSet<String>) stored;
+                        items = names;
+                        return;
+                    }
+                } catch (IOException ex) {
+                    // The search runs again then
+                }
+            }
+        }
+        // The search does not need the lock
+        evaluate(view);
+        DIRTY.add(view);
+    }
+    
+    /**
+     * Writes the results to the {@link #getResultsFile(View) file}.
+     * {@link hudson.model.listeners.SaveableListener}s are not notified,
+     * the view configuration stays the same.
+     * @param view View, which owns the search
+     * @throws IOException Failed to write the file
+     */
+    void saveResults(@Nonnull View view) throws IOException {
+        final TreeSet<String> names;
+        synchronized (this) {
+            if (items == null) {
+                return; // Not loaded, so not changed
+            }
+            names = new TreeSet<String>(items);
+        }
+        getResultsFile(view).write(names);
+    }
+    
+    /**
+     * Deletes the file with results.
+     * @param view View, which owned the search
+     * @throws IOException Failed to delete the file
+     */
+    void deleteResults(@Nonnull View view) throws IOException {
+        getResultsFile(view).delete();
+    }
+    
+    /**
+     * Gets the file with results of the search.
+     * The name is derived from the view URL and the search name, which may
+     * contain any characters.
+     * @param view View, which owns the search
+     * @return File in {@link #getResultsDir()}
+     */
+    @Nonnull
+    private XmlFile getResultsFile(@Nonnull View view) {
+        return new XmlFile(new File(getResultsDir(), Util.getDigestOf(view.getViewUrl() + '\n' + name) + ".xml"));
+    }
+    
+    /**
+     * Gets the directory with results of all saved searches.
+     * @return Directory in the Jenkins home
+     */
+    @Nonnull
+    static File getResultsDir() {
+        return new File(Jenkins.get().getRootDir(), "dynamic-search-view/saved-searches");
+    }
+    
+    /**
+     * Checks whether the results may be updated for a single item.
+     */
+    private boolean isIncremental() {
+        return jobFilters.isEmpty();
+    }
+    
+    /**
+     * Tests the item again after its change.
+     * @param view View, which owns the search
+     * @param item Created or updated item
+     * @return {@code true} if the results have changed
+     */
+    private boolean update(@Nonnull SimpleSearchView view, @Nonnull Item item) {
+        if (!isIncremental() || !(item instanceof TopLevelItem)) {
+            return false;
+        }
+        load(view);
+        final String relativeName = getRelativeName(view, item);
+        boolean matches;
+        try {
+            final JobsFilter f = getFilter(view);
+            matches = relativeName != null 
+                    && f.matches(relativeName, (TopLevelItem) item, RegexGuard.newDeadline())
+                    && f.matchesText((TopLevelItem) item);
+        } catch (RegexGuard.BudgetExceededException ex) {
+            matches = false; // The search would not find it either
+        }
+        synchronized (this) {
+            return matches ? items.add(item.getFullName()) : items.remove(item.getFullName());
+        }
+    }
+    
+    /**
+     * Removes the item and items nested into it.
+     * @param fullName Full name of the deleted or moved item
+     * @return {@code true} if the results have changed
+     */
+    private boolean remove(@Nonnull SimpleSearchView view, @Nonnull String fullName) {
+        if (!isIncremental()) {
+            return false;
+        }
+        load(view);
+        synchronized (this) {
+            final boolean removed = items.remove(fullName);
+            final Set<String> nested = items.subSet(fullName + "/", fullName + "0"); // '0' follows '/'
+            if (nested.isEmpty()) {
+                return removed;
+            }
+            nested.clear();
+            return true;
+        }
+    }
+    
+    /**
+     * Gets the name, by which the view search matches the item.
+     * @return Name relative to the view owner. {@code null} if the item is 
+     *         out of the search scope.
+     */
+    @CheckForNull
+    private static String getRelativeName(@Nonnull SimpleSearchView view, @Nonnull Item item) {
+        final ItemGroup<? extends TopLevelItem> root = view.getOwnerItemGroup();
+        ItemGroup<? extends Item> parent = item.getParent();
+        if (parent == root) {
+            return item.getName();
+        }
+        if (!view.isRecurse()) {
+            return null;
+        }
+        // Same depth as in RecursiveItemSearch, items of the root group are on the level 0
+        int depth = 0;
+        while (parent != root) {
+            if (!(parent instanceof Item)) {
+                return null;
+            }
+            parent = ((Item) parent).getParent();
+            depth++;
+        }
+        final int maxDepth = view.getMaxSearchDepth();
+        return maxDepth <= 0 || depth <= maxDepth ? item.getRelativeNameFrom(root) : null;
+    }
+    
+    /**
+     * Subscribes the view to item changes.
+     * @param view View with saved searches
+     */
+    static void register(@Nonnull SimpleSearchView view) {
+        synchronized (VIEWS) {
+            VIEWS.add(view);
+        }
+    }
+    
+    /**
+     * Gets views with saved searches, which are still a part of the configuration.
+     */
+    @Nonnull
+    private static List<SimpleSearchView> getViews() {
+        final List<SimpleSearchView> res;
+        synchronized (VIEWS) {
+            res = new ArrayList<SimpleSearchView>(VIEWS);
+        }
+        for (SimpleSearchView view : res.toArray(new SimpleSearchView[res.size()])) {
+            // Views get replaced by new instances on reload
+            final ViewGroup owner = view.getOwner();
+            if (owner == null || owner.getView(view.getViewName()) != view) {
+                res.remove(view);
+                synchronized (VIEWS) {
+                    VIEWS.remove(view);
+                }
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Saves results of views, which have changed.
+     * @throws IOException Failed to save results, they will be saved next time
+     */
+    static void saveChanges() throws IOException {
+        for (SimpleSearchView view : DIRTY.toArray(new SimpleSearchView[0])) {
+            DIRTY.remove(view);
+            try {
+                for (SavedSearch search : view.getSavedSearches()) {
+                    search.saveResults(view);
+                }
+            } catch (IOException ex) {
+                DIRTY.add(view);
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Saves changed results on shutdown.
+     */
+    @Terminator
+    @Restricted(NoExternalUse.class)
+    public static void onShutdown() throws IOException {
+        saveChanges();
+    }
+    
+    /**
+     * Keeps saved results up to date.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            for (SimpleSearchView view : getViews()) {
+                boolean changed = false;
+                for (SavedSearch search : view.getSavedSearches()) {
+                    changed |= search.update(view, item);
+                }
+                if (changed) {
+                    DIRTY.add(view);
+                }
+            }
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            // The project may have been disabled or enabled
+            onCreated(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            remove(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            // Also invoked for renames and for items in moved folders
+            remove(oldFullName);
+            onCreated(item);
+        }
+        
+        private void remove(@Nonnull String fullName) {
+            for (SimpleSearchView view : getViews()) {
+                boolean changed = false;
+                for (SavedSearch search : view.getSavedSearches()) {
+                    changed |= search.remove(view, fullName);
+                }
+                if (changed) {
+                    DIRTY.add(view);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Saves changed results periodically, so bulk changes of items do not 
+     * write the results for every item.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveWork extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() throws Exception {
+            saveChanges();
+        }
+    }
+}
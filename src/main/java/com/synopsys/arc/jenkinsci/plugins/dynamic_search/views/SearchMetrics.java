@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Runtime metrics of dynamic search views.
+ * Counters are cumulative since the startup, they are exposed on the
+ * {@link SearchMetricsLink management page} and by the JMX MBean
+ * {@value #OBJECT_NAME}.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+public final class SearchMetrics implements SearchMetricsMBean {
+
+    static final String OBJECT_NAME = "com.synopsys.arc.jenkinsci.plugins.dynamic_search:type=SearchMetrics";
+
+    private static final SearchMetrics INSTANCE = new SearchMetrics();
+
+    private final LatencyHistogram getItemsLatency = new LatencyHistogram();
+    private final LatencyHistogram filterLatency = new LatencyHistogram();
+    private final LatencyHistogram searchSubmitLatency = new LatencyHistogram();
+
+    private final LongAdder itemsScanned = new LongAdder();
+    private final LongAdder itemsReturned = new LongAdder();
+    private final LongAdder regexMatchNanos = new LongAdder();
+    private final LongAdder jobFilterNanos = new LongAdder();
+
+    private final HitRatio itemsMemo = new HitRatio();
+    private final HitRatio resultsCache = new HitRatio();
+    private final HitRatio patternCache = new HitRatio();
+    private final HitRatio patternMatchCache = new HitRatio();
+    private final HitRatio sessionContexts = new HitRatio();
+    private final HitRatio visibleItemsCache = new HitRatio();
+
+    /**
+     * Execution statistics of job filters in all views.
+     */
+    private final JobFilterStats jobFilterStats = new JobFilterStats();
+
+    private SearchMetrics() {
+        // Singleton
+    }
+
+    @Nonnull
+    public static SearchMetrics get() {
+        return INSTANCE;
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    @Restricted(NoExternalUse.class)
+    public static void registerMBean() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        // Jenkins may be restarted within the same JVM
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(INSTANCE, name);
+    }
+
+    void recordGetItems(long nanos, boolean memoHit) {
+        getItemsLatency.record(nanos);
+        itemsMemo.record(memoHit);
+    }
+
+    void recordFilter(long nanos, int returned) {
+        filterLatency.record(nanos);
+        itemsReturned.add(returned);
+    }
+
+    void recordSearchSubmit(long nanos) {
+        searchSubmitLatency.record(nanos);
+    }
+
+    void recordScan(int scanned) {
+        itemsScanned.add(scanned);
+    }
+
+    void recordRegexMatch(long nanos) {
+        regexMatchNanos.add(nanos);
+    }
+
+    void recordJobFilter(long nanos) {
+        jobFilterNanos.add(nanos);
+    }
+
+    void recordResultsCache(boolean hit) {
+        resultsCache.record(hit);
+    }
+
+    void recordPatternCache(boolean hit) {
+        patternCache.record(hit);
+    }
+
+    void recordPatternMatchCache(boolean hit) {
+        patternMatchCache.record(hit);
+    }
+
+    void recordSessionContext(boolean hit) {
+        sessionContexts.record(hit);
+    }
+
+    void recordVisibleItemsCache(boolean hit) {
+        visibleItemsCache.record(hit);
+    }
+
+    @Nonnull
+    public String getObjectName() {
+        return OBJECT_NAME;
+    }
+
+    @Nonnull
+    public LatencyHistogram getGetItemsLatency() {
+        return getItemsLatency;
+    }
+
+    @Nonnull
+    public LatencyHistogram getFilterLatency() {
+        return filterLatency;
+    }
+
+    @Nonnull
+    public LatencyHistogram getSearchSubmitLatency() {
+        return searchSubmitLatency;
+    }
+
+    @Nonnull
+    public JobFilterStats getJobFilterStats() {
+        return jobFilterStats;
+    }
+
+    @Override
+    public long getGetItemsCount() {
+        return getItemsLatency.getCount();
+    }
+
+    @Override
+    public double getGetItemsMeanMillis() {
+        return getItemsLatency.getMeanMillis();
+    }
+
+    @Override
+    public long getGetItemsP95Millis() {
+        return getItemsLatency.getP95Millis();
+    }
+
+    @Override
+    public double getGetItemsMaxMillis() {
+        return getItemsLatency.getMaxMillis();
+    }
+
+    @Override
+    public long getFilterCount() {
+        return filterLatency.getCount();
+    }
+
+    @Override
+    public double getFilterMeanMillis() {
+        return filterLatency.getMeanMillis();
+    }
+
+    @Override
+    public long getFilterP95Millis() {
+        return filterLatency.getP95Millis();
+    }
+
+    @Override
+    public double getFilterMaxMillis() {
+        return filterLatency.getMaxMillis();
+    }
+
+    @Override
+    public long getSearchSubmitCount() {
+        return searchSubmitLatency.getCount();
+    }
+
+    @Override
+    public double getSearchSubmitMeanMillis() {
+        return searchSubmitLatency.getMeanMillis();
+    }
+
+    @Override
+    public long getItemsScanned() {
+        return itemsScanned.sum();
+    }
+
+    @Override
+    public long getItemsReturned() {
+        return itemsReturned.sum();
+    }
+
+    @Override
+    public long getRegexMatchMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(regexMatchNanos.sum());
+    }
+
+    @Override
+    public long getJobFilterMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(jobFilterNanos.sum());
+    }
+
+    @Override
+    public double getItemsMemoHitRatio() {
+        return itemsMemo.getRatio();
+    }
+
+    @Override
+    public double getResultsCacheHitRatio() {
+        return resultsCache.getRatio();
+    }
+
+    @Override
+    public double getPatternCacheHitRatio() {
+        return patternCache.getRatio();
+    }
+
+    @Override
+    public double getPatternMatchCacheHitRatio() {
+        return patternMatchCache.getRatio();
+    }
+
+    @Override
+    public double getSessionContextHitRatio() {
+        return sessionContexts.getRatio();
+    }
+
+    @Override
+    public double getVisibleItemsCacheHitRatio() {
+        return visibleItemsCache.getRatio();
+    }
+
+    @Override
+    public long getLiveSessionContexts() {
+        return UserContextCache.getTotalSize();
+    }
+
+    @Override
+    public long getSessionContextRetainedBytes() {
+        return UserContextCache.estimateTotalRetainedBytes();
+    }
+
+    /**
+     * Counts hits and misses of a cache.
+     */
+    private static final class HitRatio {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        void record(boolean hit) {
+            (hit ? hits : misses).increment();
+        }
+
+        double getRatio() {
+            final long h = hits.sum();
+            final long total = h + misses.sum();
+            return total > 0 ? (double) h / total : 0;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * The MIT License
  *
- * Copyright 2014-2015 Oleg Nenashev, Synopsys Inc.
+ * Copyright 2013-2015 Oleg Nenashev, Synopsys Inc.
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -21,23 +21,60 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-package com.synopsys.arc.jenkinsci.plugins.dynamic_search.util;
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
 
-import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SimpleSearchView;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
- * Provides methods for creating of new views from {@link SimpleSearchView}. 
- * @author Oleg Nenashev
- * @since 0.3
- * @deprecated The functionality is not ready. The class sneaked into the 
- * code somehow and then got released.
+ * JMX interface of {@link SearchMetrics}.
+ * Times are in milliseconds.
+ * @since 0.4.1
  */
-@Deprecated
 @Restricted(NoExternalUse.class)
-class ListViewCreator {
-    public void createMyView() {
-        
-    }
+public interface SearchMetricsMBean {
+
+    long getGetItemsCount();
+
+    double getGetItemsMeanMillis();
+
+    long getGetItemsP95Millis();
+
+    double getGetItemsMaxMillis();
+
+    long getFilterCount();
+
+    double getFilterMeanMillis();
+
+    long getFilterP95Millis();
+
+    double getFilterMaxMillis();
+
+    long getSearchSubmitCount();
+
+    double getSearchSubmitMeanMillis();
+
+    long getItemsScanned();
+
+    long getItemsReturned();
+
+    long getRegexMatchMillis();
+
+    long getJobFilterMillis();
+
+    double getItemsMemoHitRatio();
+
+    double getResultsCacheHitRatio();
+
+    double getPatternCacheHitRatio();
+
+    double getPatternMatchCacheHitRatio();
+
+    double getSessionContextHitRatio();
+
+    double getVisibleItemsCacheHitRatio();
+
+    long getLiveSessionContexts();
+
+    long getSessionContextRetainedBytes();
 }
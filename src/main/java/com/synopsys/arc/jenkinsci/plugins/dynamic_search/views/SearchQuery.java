@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.View;
+import hudson.util.DescribableList;
+import hudson.views.ViewJobFilter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.ServletException;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Search parameters, which are passed in the query string.
+ * Supported parameters:
+ * <ul>
+ *   <li>{@code includeRegex} - regular expression for item names</li>
+ *   <li>{@code statusFilter} - {@code 1} for enabled jobs, {@code 0} for disabled ones</li>
+ *   <li>{@code textQuery} - query over item fields, see {@link FullTextQuery}</li>
+ * </ul>
+ * A query without any of these parameters means that the default filters
+ * of the view should be used.
+ * {@link ViewJobFilter}s are never built from the URL. They are accepted only
+ * in POST requests, and searches with them are kept in the session context 
+ * of the user or as {@link SavedSearch}es. The {@code jobFilters} parameter
+ * is a JSON array in the format of the {@code jobFilters} form field.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class SearchQuery {
+
+    /**
+     * Regular expression. Empty string means an explicit search for all items.
+     */
+    @CheckForNull
+    private final String includeRegex;
+    @CheckForNull
+    private final Boolean statusFilter;
+    @CheckForNull
+    private final String textQuery;
+    /**
+     * Normalized JSON representation of job filters.
+     */
+    @CheckForNull
+    private final String jobFilters;
+
+    private SearchQuery(@CheckForNull String includeRegex, @CheckForNull Boolean statusFilter,
+            @CheckForNull String textQuery, @CheckForNull String jobFilters) {
+        this.includeRegex = includeRegex;
+        this.statusFilter = statusFilter;
+        this.textQuery = textQuery;
+        this.jobFilters = jobFilters;
+    }
+
+    /**
+     * Reads the query from the URL parameters.
+     * The {@code jobFilters} parameter is ignored.
+     * @param req Stapler Request
+     * @return Query without job filters
+     */
+    @Nonnull
+    static SearchQuery fromParameters(@Nonnull StaplerRequest req) {
+        final String filter = Util.fixEmpty(req.getParameter("statusFilter"));
+        return new SearchQuery(req.getParameter("includeRegex"),
+                filter != null ? "1".equals(filter) : null,
+                Util.fixEmptyAndTrim(req.getParameter("textQuery")), null);
+    }
+
+    /**
+     * Reads the query including job filters from the request parameters.
+     * Callers must ensure, that the request is a POST one.
+     * @param req Stapler Request
+     * @return Query
+     * @throws JSONException Malformed job filters
+     */
+    @Nonnull
+    static SearchQuery fromSubmittedParameters(@Nonnull StaplerRequest req) throws JSONException {
+        final String jobFiltersJson = Util.fixEmptyAndTrim(req.getParameter("jobFilters"));
+        final SearchQuery query = fromParameters(req);
+        return new SearchQuery(query.includeRegex, query.statusFilter, query.textQuery,
+                jobFiltersJson != null ? normalize(jobFiltersJson) : null);
+    }
+
+    /**
+     * Reads the query from the submitted search form.
+     * @param req Stapler Request
+     * @return Query. It is never empty, because the form is an explicit search.
+     */
+    @Nonnull
+    static SearchQuery fromForm(@Nonnull StaplerRequest req) throws ServletException {
+        final String regex = Util.fixEmpty(req.getParameter("_.includeRegex"));
+        final String filter = Util.fixEmpty(req.getParameter("statusFilter"));
+        final Object jobFiltersJson = req.getSubmittedForm().opt("jobFilters");
+        return new SearchQuery(regex != null ? regex : "",
+                filter != null ? "1".equals(filter) : null,
+                Util.fixEmptyAndTrim(req.getParameter("_.textQuery")),
+                jobFiltersJson != null ? normalize(jobFiltersJson) : null);
+    }
+
+    @CheckForNull
+    private static String normalize(@Nonnull Object json) {
+        if (json instanceof String && ((String) json).startsWith("{")) {
+            json = JSONObject.fromObject(json);
+        }
+        final JSONArray jobFilters;
+        if (json instanceof JSONArray) {
+            jobFilters = (JSONArray) json;
+        } else if (json instanceof JSONObject) { // Single filter in the form
+            jobFilters = new JSONArray();
+            jobFilters.add(json);
+        } else {
+            jobFilters = JSONArray.fromObject(json);
+        }
+        return jobFilters.isEmpty() ? null : jobFilters.toString();
+    }
+
+    /**
+     * Checks whether the query specifies any filters.
+     * @return {@code false} if the default filters should be used
+     */
+    boolean isEmpty() {
+        return includeRegex == null && statusFilter == null && textQuery == null && jobFilters == null;
+    }
+
+    /**
+     * Checks whether the query specifies job filters.
+     * @return {@code true} if building the filter creates {@link ViewJobFilter}s
+     */
+    boolean hasJobFilters() {
+        return jobFilters != null;
+    }
+
+    /**
+     * Builds a filter for the query.
+     * @param parentView Parent View, which creates the filter
+     * @return Filter
+     * @throws PatternSyntaxException Invalid regular expression
+     * @throws IllegalArgumentException Malformed text query
+     * @throws JSONException Malformed job filters
+     */
+    @Nonnull
+    JobsFilter toFilter(@Nonnull View parentView)
+            throws Descriptor.FormException, IOException, PatternSyntaxException, JSONException {
+        final DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>> filters =
+                new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(parentView);
+        if (jobFilters != null) {
+            final JSONObject form = new JSONObject();
+            form.put("jobFilters", JSONArray.fromObject(jobFilters));
+            filters.rebuildHetero(Stapler.getCurrentRequest(), form, ViewJobFilter.all(), "jobFilters");
+        }
+        return new JobsFilter(parentView, filters.toList(), Util.fixEmpty(includeRegex), statusFilter, textQuery);
+    }
+
+    /**
+     * Encodes the query in the normalized form.
+     * @return Query string without the leading {@code ?}.
+     *         Empty string for an empty query.
+     */
+    @Nonnull
+    String toQueryString() {
+        final StringBuilder res = new StringBuilder();
+        append(res, "includeRegex", includeRegex);
+        append(res, "statusFilter", statusFilter != null ? (statusFilter ? "1" : "0") : null);
+        append(res, "textQuery", textQuery);
+        append(res, "jobFilters", jobFilters);
+        return res.toString();
+    }
+
+    private static void append(@Nonnull StringBuilder buf, @Nonnull String name, @CheckForNull String value) {
+        if (value == null) {
+            return;
+        }
+        if (buf.length() > 0) {
+            buf.append('&');
+        }
+        try {
+            buf.append(name).append('=').append(URLEncoder.encode(value, "UTF-8"));
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 is not supported", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toQueryString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.model.TopLevelItem;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Read-only list of items found by a single search.
+ * The list tells whether the search has run out of its 
+ * {@link RegexGuard#TIME_BUDGET_MS time budget}, so the flag stays with 
+ * the results it describes.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class SearchResult extends AbstractList<TopLevelItem> implements RandomAccess {
+    
+    @Nonnull
+    private final List<TopLevelItem> items;
+    private final boolean truncated;
+
+    /**
+     * Wraps items of the search.
+     * @param items Found items, the list is not being copied
+     * @param truncated {@code true} if the search has been stopped by the time budget
+     */
+    SearchResult(@Nonnull List<TopLevelItem> items, boolean truncated) {
+        this.items = items;
+        this.truncated = truncated;
+    }
+
+    @Override
+    public TopLevelItem get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Checks whether the search has run out of its time budget.
+     * @return {@code true} if the search may have missed some items
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+    
+    /**
+     * Checks whether the items have been found by a truncated search.
+     * @param items Items, e.g. {@link SimpleSearchView#getItems()}
+     * @return {@code true} if the list is a truncated {@link SearchResult}
+     */
+    static boolean isTruncated(@Nonnull List<TopLevelItem> items) {
+        return items instanceof SearchResult && ((SearchResult) items).isTruncated();
+    }
+}
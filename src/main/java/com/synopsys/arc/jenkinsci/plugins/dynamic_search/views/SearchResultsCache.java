@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Stores search results of a view, which are shared by all sessions.
+ * <ul>
+ *   <li>Entries are keyed by {@link JobsFilter#getCacheKey()}, so equal 
+ *       searches of different users hit the same entry. Searches, which
+ *       depend on the user, are keyed by the authentication as well.</li>
+ *   <li>Entries are valid while the {@link ItemsVersion#getConfigVersion() 
+ *       configuration version} stays the same. Results of searches with
+ *       {@link hudson.views.ViewJobFilter}s also depend on the 
+ *       {@link ItemsVersion#getRunVersion() version of builds}, because the 
+ *       filters may check build results.</li>
+ *   <li>Concurrent requests of the same search wait for a single computation
+ *       up to the {@link RegexGuard#TIME_BUDGET_MS search time budget}, then 
+ *       they search on their own.</li>
+ *   <li>{@link SearchResult#isTruncated() Truncated} results are not stored,
+ *       the next request searches again.</li>
+ *   <li>The cache is bounded by {@link #MAX_SIZE}, the least recently used
+ *       entries get evicted.</li>
+ * </ul>
+ * Results of searches shared by users are not filtered by permissions,
+ * callers do it for the current user.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class SearchResultsCache {
+    
+    /**
+     * Maximum number of searches stored by a single view.
+     * {@code 0} disables the cache.
+     */
+    static final int MAX_SIZE = SystemProperties.getInteger(
+            SearchResultsCache.class.getName() + ".maxSize", 32);
+    
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    
+    /**
+     * Gets results of the search.
+     * @param filters Search filters
+     * @param auth Authentication, which results of the search depend on.
+     *        {@code null} if all users share the results.
+     * @param search Computes results if there is no valid entry
+     * @return Results of the search
+     */
+    @Nonnull
+    SearchResult get(@Nonnull JobsFilter filters, @CheckForNull Authentication auth,
+            @Nonnull Supplier<SearchResult> search) {
+        if (MAX_SIZE <= 0) {
+            return search.get();
+        }
+        
+        final String key;
+        if (auth != null) {
+            // The length prefix prevents user names from spoofing filter keys
+            final String userKey = VisibleItems.getKey(auth);
+            key = userKey.length() + ":" + userKey + '\n' + filters.getCacheKey();
+        } else {
+            key = filters.getCacheKey();
+        }
+        // Versions are taken before the search, so changes made during 
+        // the search invalidate its results
+        final long configVersion = ItemsVersion.getConfigVersion();
+        final long runVersion = filters.hasJobFilters() ? ItemsVersion.getRunVersion() : 0;
+        while (true) {
+            final Entry entry = entries.get(key);
+            if (entry != null && entry.configVersion >= configVersion && entry.runVersion >= runVersion) {
+                entry.lastAccessed = System.currentTimeMillis();
+                SearchMetrics.get().recordResultsCache(true);
+                final SearchResult res = entry.await();
+                if (res != null) {
+                    return res;
+                }
+                // The search takes longer than its budget, e.g. due to slow job filters
+                return search.get();
+            }
+            
+            final Entry newEntry = new Entry(configVersion, runVersion);
+            final boolean owner = entry == null 
+                    ? entries.putIfAbsent(key, newEntry) == null 
+                    : entries.replace(key, entry, newEntry);
+            if (!owner) {
+                continue; // Another thread has started the search
+            }
+            SearchMetrics.get().recordResultsCache(false);
+            if (entries.size() > MAX_SIZE) {
+                evict();
+            }
+            
+            final SearchResult res;
+            try {
+                res = search.get();
+            } catch (RuntimeException | Error ex) {
+                // Waiting threads fail as well, the next request retries
+                entries.remove(key, newEntry);
+                newEntry.result.completeExceptionally(ex);
+                throw ex;
+            }
+            if (res.isTruncated()) {
+                // Waiting threads get the partial results, the next request searches again
+                entries.remove(key, newEntry);
+            }
+            newEntry.result.complete(res);
+            return res;
+        }
+    }
+    
+    /**
+     * Removes all entries, e.g. after the view reconfiguration.
+     */
+    void clear() {
+        entries.clear();
+    }
+    
+    int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Shrinks the cache below {@link #MAX_SIZE}.
+     */
+    private void evict() {
+        final List<Map.Entry<String, Entry>> all = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+        Collections.sort(all, (a, b) -> Long.compare(a.getValue().lastAccessed, b.getValue().lastAccessed));
+        final int toRemove = all.size() - MAX_SIZE;
+        for (int i = 0; i < toRemove; i++) {
+            entries.remove(all.get(i).getKey(), all.get(i).getValue());
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final long configVersion;
+        private final long runVersion;
+        private final CompletableFuture<SearchResult> result = new CompletableFuture<SearchResult>();
+        private volatile long lastAccessed = System.currentTimeMillis();
+
+        Entry(long configVersion, long runVersion) {
+            this.configVersion = configVersion;
+            this.runVersion = runVersion;
+        }
+        
+        /**
+         * Waits for results within the search time budget.
+         * @return Results. {@code null} if they have not been computed in time.
+         */
+        @CheckForNull
+        SearchResult await() {
+            try {
+                return RegexGuard.TIME_BUDGET_MS > 0 
+                        ? result.get(RegexGuard.TIME_BUDGET_MS, TimeUnit.MILLISECONDS) 
+                        : result.get();
+            } catch (TimeoutException ex) {
+                return null;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
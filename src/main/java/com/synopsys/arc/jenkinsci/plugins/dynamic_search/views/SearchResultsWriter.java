@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Util;
+import hudson.model.AbstractItem;
+import hudson.model.AbstractProject;
+import hudson.model.BallColor;
+import hudson.model.Job;
+import hudson.model.TopLevelItem;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.Locale;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import net.sf.json.util.JSONUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Writes search results to the response while they are being found.
+ * Each item is written as a JSON object with the requested fields.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class SearchResultsWriter implements JobsFilter.Visitor {
+
+    /**
+     * Number of items, after which the output gets flushed to the client.
+     */
+    private static final int FLUSH_INTERVAL = 50;
+
+    /**
+     * Output formats.
+     */
+    enum Format {
+        /**
+         * One JSON object per line.
+         */
+        NDJSON("application/x-ndjson"),
+        /**
+         * Single JSON array.
+         */
+        JSON("application/json");
+
+        @Nonnull
+        private final String contentType;
+
+        Format(@Nonnull String contentType) {
+            this.contentType = contentType;
+        }
+
+        @Nonnull
+        String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Parses the format name.
+         * @param value Format name. {@code null} means {@link #NDJSON}.
+         * @return Format
+         * @throws IllegalArgumentException Unknown format
+         */
+        @Nonnull
+        static Format fromString(@CheckForNull String value) throws IllegalArgumentException {
+            final String name = Util.fixEmptyAndTrim(value);
+            if (name == null) {
+                return NDJSON;
+            }
+            try {
+                return valueOf(name.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown format: " + name, ex);
+            }
+        }
+    }
+
+    /**
+     * Item fields, which may be requested.
+     */
+    enum Field {
+        name {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item.getName();
+            }
+        },
+        fullName {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item.getFullName();
+            }
+        },
+        displayName {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item.getDisplayName();
+            }
+        },
+        url {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item.getUrl();
+            }
+        },
+        disabled {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item instanceof AbstractProject ? ((AbstractProject) item).isDisabled() : null;
+            }
+        },
+        color {
+            @Override
+            Object getValue(TopLevelItem item) {
+                if (!(item instanceof Job)) {
+                    return null;
+                }
+                final BallColor color = ((Job) item).getIconColor();
+                return color != null ? color.getIconName() : null;
+            }
+        },
+        description {
+            @Override
+            Object getValue(TopLevelItem item) {
+                return item instanceof AbstractItem ? ((AbstractItem) item).getDescription() : null;
+            }
+        };
+
+        /**
+         * Gets the field value.
+         * @return {@link String}, {@link Boolean} or {@code null}
+         */
+        @CheckForNull
+        abstract Object getValue(@Nonnull TopLevelItem item);
+
+        /**
+         * Parses the comma-separated list of fields.
+         * @param value Field names. {@code null} means the default set of fields.
+         * @return Fields
+         * @throws IllegalArgumentException Unknown field
+         */
+        @Nonnull
+        static EnumSet<Field> parse(@CheckForNull String value) throws IllegalArgumentException {
+            if (Util.fixEmptyAndTrim(value) == null) {
+                return EnumSet.of(name, fullName, url);
+            }
+            final EnumSet<Field> res = EnumSet.noneOf(Field.class);
+            for (String fieldName : value.split(",")) {
+                final String trimmed = fieldName.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                try {
+                    res.add(valueOf(trimmed));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Unknown field: " + trimmed, ex);
+                }
+            }
+            return res;
+        }
+    }
+
+    @Nonnull
+    private final Writer out;
+    @Nonnull
+    private final Format format;
+    @Nonnull
+    private final EnumSet<Field> fields;
+    private final int offset;
+    private final int limit;
+
+    private int found;
+    private int written;
+    @CheckForNull
+    private IOException failure;
+
+    /**
+     * Constructor.
+     * @param out Output
+     * @param format Output format
+     * @param fields Fields to be written
+     * @param offset Number of matching items to be skipped
+     * @param limit Maximal number of items to be written. {@code 0} means no limit.
+     */
+    SearchResultsWriter(@Nonnull Writer out, @Nonnull Format format, @Nonnull EnumSet<Field> fields,
+            int offset, int limit) {
+        this.out = out;
+        this.format = format;
+        this.fields = fields;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    void begin() throws IOException {
+        if (format == Format.JSON) {
+            out.write('[');
+        }
+    }
+
+    @Override
+    public boolean visit(@Nonnull TopLevelItem item) {
+        if (found++ < offset) {
+            return true;
+        }
+        try {
+            write(item);
+        } catch (IOException ex) {
+            // Most likely the client has gone away, there is no need to search further
+            failure = ex;
+            return false;
+        }
+        return limit <= 0 || written < limit;
+    }
+
+    /**
+     * Completes the output.
+     * @throws IOException Writing of items or completion failed
+     */
+    void end() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (format == Format.JSON) {
+            out.write("]\n");
+        }
+        out.flush();
+    }
+
+    private void write(@Nonnull TopLevelItem item) throws IOException {
+        final StringBuilder buf = new StringBuilder();
+        if (format == Format.JSON && written > 0) {
+            buf.append(',');
+        }
+        buf.append('{');
+        boolean first = true;
+        for (Field field : fields) {
+            final Object value = field.getValue(item);
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            buf.append(JSONUtils.quote(field.name())).append(':');
+            if (value instanceof Boolean) {
+                buf.append(value.toString());
+            } else if (value != null) {
+                buf.append(JSONUtils.quote(value.toString()));
+            } else {
+                buf.append("null");
+            }
+        }
+        buf.append('}');
+        if (format == Format.NDJSON) {
+            buf.append('\n');
+        }
+        out.write(buf.toString());
+
+        if (++written % FLUSH_INTERVAL == 0) {
+            out.flush();
+        }
+    }
+}
@@ -28,42 +28,57 @@ import hudson.Extension;
 import hudson.RestrictedSince;
 import hudson.Util;
 import hudson.model.Descriptor;
+import hudson.model.Item;
 import hudson.model.ListView;
 import hudson.model.TopLevelItem;
 import hudson.model.View;
 import hudson.model.ViewDescriptor;
+import hudson.model.ViewGroup;
 import hudson.search.Search;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.security.csrf.CrumbIssuer;
+import hudson.util.CopyOnWriteList;
 import hudson.util.DescribableList;
 import hudson.util.FormValidation;
 import hudson.util.VersionNumber;
+import hudson.views.ListViewColumn;
 import hudson.views.ViewJobFilter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONException;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
-
-// TODO: Add support of URLs
-// TODO: Add "Save as view" button
-// TODO: Add garbage collector
+import org.kohsuke.stapler.interceptor.RequirePOST;
+import org.springframework.security.core.Authentication;
 
 /**
  * List View with dynamic filters.
  * The class is being displayed as a &quot;Dynamic Search View&quot; in Jenkins UI,
  * but we keep the original class name in order to maintain the backward compatibility.
- * Class uses internal storage to pass parameters between pages.
+ * Search parameters are passed in the query string, see {@link SearchQuery}.
  * @author Oleg Nenashev
  */
 public class SimpleSearchView extends ListView {
@@ -74,18 +89,101 @@ public class SimpleSearchView extends ListView {
      */
     public static final VersionNumber MINIMAL_AUTOREFRESH_VERSION = new VersionNumber("1.557");
     
+    /**
+     * Request attribute, which stores items calculated by search views during 
+     * the current request.
+     * @see ItemsMemo
+     */
+    private static final String ITEMS_MEMO_ATTRIBUTE = SimpleSearchView.class.getName() + ".itemsMemo";
+    
+    /**
+     * Maximum number of rows, which cells of deferred columns are rendered at once.
+     */
+    static final int MAX_DEFERRED_ROWS = SystemProperties.getInteger(
+            SimpleSearchView.class.getName() + ".maxDeferredRows", 100);
+    
+    /**
+     * Stores search contexts submitted by {@link #updateSearchCache(JobsFilter)}.
+     * The view itself keeps the search state in the URL.
+     */    
     @Nonnull
     transient UserContextCache contextMap;
     
+    /**
+     * Search results shared by all users.
+     * @since 0.4.1
+     */
+    @Nonnull
+    private transient SearchResultsCache resultsCache;
+    
+    // Default settings are modified under the view monitor, but read without locking
     @CheckForNull
-    private String defaultIncludeRegex;
+    private volatile String defaultIncludeRegex;
     @CheckForNull
-    private DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>> defaultJobFilters;
+    private volatile DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>> defaultJobFilters;
+    /**
+     * Number of threads, which may be used to search in folders.
+     * {@code 1} or less means searching in the request thread.
+     * @since 0.4.1
+     */
+    private int searchParallelism;
+    /**
+     * Maximum number of nested folder levels to search in.
+     * {@code 0} means no limit.
+     * @since 0.4.1
+     */
+    private int maxSearchDepth;
+    
+    /**
+     * Maximum number of items displayed on the page at once.
+     * {@code 0} means no limit.
+     * @since 0.4.1
+     */
+    private int pageSize;
+    
+    /**
+     * Allows reordering and skipping of {@link ViewJobFilter}s.
+     * @since 0.4.1
+     */
+    private boolean optimizeJobFilters;
+    
+    /**
+     * Runs searches in background, the page displays results as they are found.
+     * @since 0.4.1
+     */
+    private boolean asyncSearch;
+    
+    /**
+     * Renders expensive columns only for rows, which the user scrolls to.
+     * @since 0.4.1
+     */
+    private boolean deferColumns;
+    
+    /**
+     * Searches saved by users together with their results.
+     * @since 0.4.1
+     */
+    @Nonnull
+    private volatile CopyOnWriteList<SavedSearch> savedSearches = new CopyOnWriteList<SavedSearch>();
+    
+    /**
+     * Filters built from the default settings.
+     * They are shared by all sessions, which have not specified own filters.
+     * Readers take no locks, the field is written under the view monitor 
+     * together with the default settings.
+     * @see #getDefaultFilters() 
+     */
+    @CheckForNull
+    private transient volatile JobsFilter defaultFilters;
+    
+    @CheckForNull
+    private transient volatile JobFilterStats jobFilterStats;
 
     @DataBoundConstructor
     public SimpleSearchView(String name) {
         super(name);
         this.contextMap = new UserContextCache();
+        this.resultsCache = new SearchResultsCache();
     } 
 
     @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE", justification = "recovers the transient field")
@@ -93,6 +191,14 @@ public class SimpleSearchView extends ListView {
         if (contextMap == null) {
             contextMap = new UserContextCache();
         }
+        if (resultsCache == null) {
+            resultsCache = new SearchResultsCache();
+        }
+        if (savedSearches == null) {
+            savedSearches = new CopyOnWriteList<SavedSearch>();
+        } else if (!savedSearches.isEmpty()) {
+            SavedSearch.register(this);
+        }
         return this;
     }
 
@@ -106,16 +212,310 @@ public class SimpleSearchView extends ListView {
         return defaultJobFilters;
     }
 
+    /**
+     * Gets the number of threads for searching in folders.
+     * Applies to views, which {@link #isRecurse() recurse in subfolders}.
+     * @return Number of threads. {@code 1} or less means a sequential search.
+     * @since 0.4.1
+     */
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setSearchParallelism(int searchParallelism) {
+        this.searchParallelism = searchParallelism;
+    }
+
+    /**
+     * Gets the maximum number of nested folder levels to search in.
+     * Applies to views, which {@link #isRecurse() recurse in subfolders}.
+     * @return Number of levels. {@code 0} means no limit.
+     * @since 0.4.1
+     */
+    public int getMaxSearchDepth() {
+        return maxSearchDepth;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setMaxSearchDepth(int maxSearchDepth) {
+        this.maxSearchDepth = maxSearchDepth;
+    }
+
+    /**
+     * Gets the maximum number of items, which are displayed at once.
+     * Other items are loaded on demand.
+     * @return Number of items. {@code 0} means no limit.
+     * @since 0.4.1
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Checks whether searches of the page run in background.
+     * Then the page is rendered immediately and polls the results.
+     * {@link #getItems()} still runs the search in the calling thread.
+     * @return {@code true} if the asynchronous search is enabled
+     * @since 0.4.1
+     */
+    public boolean isAsyncSearch() {
+        return asyncSearch;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setAsyncSearch(boolean asyncSearch) {
+        this.asyncSearch = asyncSearch;
+    }
+
+    /**
+     * Checks whether expensive columns are loaded after the page.
+     * Then the page contains only names and cheap columns, the script loads 
+     * other cells for rows in the viewport.
+     * @return {@code true} if columns are deferred
+     * @see DeferredColumn
+     * @since 0.4.1
+     */
+    public boolean isDeferColumns() {
+        return deferColumns;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setDeferColumns(boolean deferColumns) {
+        this.deferColumns = deferColumns;
+    }
+
+    /**
+     * Gets columns rendered with the results table.
+     * @return Columns of the view. 
+     *         If columns are {@link #isDeferColumns() deferred}, expensive ones 
+     *         are replaced by {@link DeferredColumn}s.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    @Nonnull
+    public List<ListViewColumn> getDisplayedColumns() {
+        final List<ListViewColumn> columns = getColumns();
+        return deferColumns ? DeferredColumn.wrap(columns) : columns;
+    }
+
+    /**
+     * Gets columns, which are loaded after the page.
+     * @return Columns in the order of {@link DeferredColumn#getIndex()}.
+     *         Empty list if columns are not {@link #isDeferColumns() deferred}.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    @Nonnull
+    public List<ListViewColumn> getDeferredColumns() {
+        return deferColumns ? DeferredColumn.getDeferred(getColumns()) : Collections.<ListViewColumn>emptyList();
+    }
+
+    /**
+     * Gets items, which cells are requested by the {@code job} parameters.
+     * Items, which do not exist or are not visible to the user, are skipped.
+     * @return Items in the order of parameters
+     * @see #doColumns(StaplerRequest, StaplerResponse)
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    @Nonnull
+    public List<TopLevelItem> getRequestedItems() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        final String[] names = req != null ? req.getParameterValues("job") : null;
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        final Jenkins jenkins = Jenkins.getInstance();
+        final Authentication auth = Jenkins.getAuthentication2();
+        final List<TopLevelItem> res = new ArrayList<TopLevelItem>(Math.min(names.length, MAX_DEFERRED_ROWS));
+        for (int i = 0; i < names.length && i < MAX_DEFERRED_ROWS; i++) {
+            final TopLevelItem item;
+            try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+                item = jenkins != null ? jenkins.getItemByFullName(names[i], TopLevelItem.class) : null;
+            }
+            if (item != null && item.getACL().hasPermission2(auth, Item.READ)) {
+                res.add(item);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Checks whether {@link ViewJobFilter}s may be reordered by their cost and 
+     * skipped once there are no items to filter.
+     * It is safe only if all filters remove items and never add them.
+     * @return {@code true} if the optimization is enabled
+     * @since 0.4.1
+     */
+    public boolean isOptimizeJobFilters() {
+        return optimizeJobFilters;
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void setOptimizeJobFilters(boolean optimizeJobFilters) {
+        this.optimizeJobFilters = optimizeJobFilters;
+        // Results may differ if some filters add items
+        resultsCache.clear();
+    }
+
+    /**
+     * Gets execution statistics of {@link ViewJobFilter}s in this view.
+     * The statistics are not persisted.
+     * @return Statistics
+     * @since 0.4.1
+     */
+    @Nonnull
+    @Restricted(NoExternalUse.class)
+    public JobFilterStats getJobFilterStats() {
+        JobFilterStats stats = jobFilterStats;
+        if (stats == null) {
+            synchronized (this) {
+                stats = jobFilterStats;
+                if (stats == null) {
+                    stats = new JobFilterStats();
+                    jobFilterStats = stats;
+                }
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * Gets searches saved in this view.
+     * @return Read-only list of searches
+     * @since 0.4.1
+     */
+    @Nonnull
+    @Restricted(NoExternalUse.class)
+    public List<SavedSearch> getSavedSearches() {
+        return savedSearches.getView();
+    }
+    
+    /**
+     * Gets the saved search.
+     * @param name Name of the search
+     * @return Search. {@code null} if there is no search with such name.
+     * @since 0.4.1
+     */
+    @CheckForNull
+    @Restricted(NoExternalUse.class)
+    public SavedSearch getSavedSearch(@CheckForNull String name) {
+        for (SavedSearch search : savedSearches) {
+            if (search.getName().equals(name)) {
+                return search;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Saves the search in the view.
+     * The search is evaluated once, then its results are kept up to date.
+     * @param name Name of the search. The search with the same name gets replaced.
+     * @param filter Filter of the search
+     * @return Saved search
+     * @throws IOException Failed to save the view or the results
+     * @since 0.4.1
+     */
+    @Nonnull
+    @Restricted(NoExternalUse.class)
+    public synchronized SavedSearch saveSearch(@Nonnull String name, @Nonnull JobsFilter filter) throws IOException {
+        final SavedSearch search = new SavedSearch(name, filter);
+        search.evaluate(this);
+        final List<SavedSearch> searches = new ArrayList<SavedSearch>(savedSearches.getView());
+        searches.remove(getSavedSearch(name));
+        searches.add(search);
+        savedSearches.replaceBy(searches);
+        SavedSearch.register(this);
+        save();
+        search.saveResults(this);
+        return search;
+    }
+    
+    /**
+     * Deletes the saved search.
+     * @param name Name of the search
+     * @throws IOException Failed to save the view or to delete the results
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized void deleteSavedSearch(@Nonnull String name) throws IOException {
+        final SavedSearch search = getSavedSearch(name);
+        if (search != null) {
+            savedSearches.remove(search);
+            save();
+            search.deleteResults(this);
+        }
+    }
+    
+    /**
+     * Gets the saved search specified by the {@code savedSearch} parameter 
+     * of the current request.
+     * @return Search. {@code null} if it is not specified or does not exist.
+     */
+    @CheckForNull
+    private SavedSearch getSelectedSavedSearch() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        return req != null && isRequestTarget(req) ? getSavedSearch(req.getParameter("savedSearch")) : null;
+    }
+    
+    /**
+     * Checks whether the request has been sent to this view.
+     * Search parameters and the session state apply to this view only.
+     * Other views rendered by the page, e.g. by a dashboard, use their 
+     * default filters.
+     * @param req Current request
+     * @return {@code true} if the view is the nearest search view in the URL
+     */
+    private boolean isRequestTarget(@Nonnull StaplerRequest req) {
+        return req.findAncestorObject(SimpleSearchView.class) == this;
+    }
+
     @Override
     protected void submit(StaplerRequest req) throws ServletException, Descriptor.FormException, IOException {
         super.submit(req); 
         
         // Handle default UI settings
-        if (defaultJobFilters == null) {
-            defaultJobFilters = new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(this);
+        synchronized (this) {
+            if (defaultJobFilters == null) {
+                defaultJobFilters = new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(this);
+            }
+            defaultJobFilters.rebuildHetero(req, req.getSubmittedForm(), ViewJobFilter.all(), "defaultJobFilters");
+            defaultIncludeRegex = hudson.Util.fixEmpty(req.getParameter("defaultIncludeRegex"));
+            defaultFilters = null;
+        }
+        searchParallelism = parseNonNegativeInt(req, "searchParallelism");
+        maxSearchDepth = parseNonNegativeInt(req, "maxSearchDepth");
+        pageSize = parseNonNegativeInt(req, "pageSize");
+        optimizeJobFilters = req.getParameter("optimizeJobFilters") != null;
+        asyncSearch = req.getParameter("asyncSearch") != null;
+        deferColumns = req.getParameter("deferColumns") != null;
+        // Filters may have changed
+        getJobFilterStats().reset();
+        resultsCache.clear();
+    }
+    
+    private static int parseNonNegativeInt(@Nonnull StaplerRequest req, @Nonnull String field) 
+            throws Descriptor.FormException {
+        String value = Util.fixEmptyAndTrim(req.getParameter(field));
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int res = Integer.parseInt(value);
+            if (res < 0) {
+                throw new Descriptor.FormException("Negative value: " + value, field);
+            }
+            return res;
+        } catch (NumberFormatException ex) {
+            throw new Descriptor.FormException("Not a number: " + value, ex, field);
         }
-        defaultJobFilters.rebuildHetero(req, req.getSubmittedForm(), ViewJobFilter.all(), "defaultJobFilters");
-        defaultIncludeRegex = hudson.Util.fixEmpty(req.getParameter("defaultIncludeRegex"));
     }
          
     /**
@@ -132,17 +532,89 @@ public class SimpleSearchView extends ListView {
     }  
 
     public boolean hasConfiguredFilters() {
-        return contextMap.containsKey(getSessionId());
+        return getQueryFilters() != null || getSessionFilters() != null;
     }
     
     /**
      * Retrieves view filters for the user.
-     * @return View filters from the session if it is available. 
+     * @return Filters of the saved search if it is opened, 
+     * then view filters from the query string if they are specified, 
+     * then filters from the session if they are available. 
      * Otherwise, default filters will be returned.
      */
     public JobsFilter getFilters() {
-        UserContext context = contextMap.get(getSessionId());
-        return context != null ? context.getFiltersConfig() : getDefaultFilters();
+        final SavedSearch saved = getSelectedSavedSearch();
+        if (saved != null) {
+            return saved.getFilter(this);
+        }
+        JobsFilter filters = getQueryFilters();
+        if (filters == null) {
+            filters = getSessionFilters();
+        }
+        return filters != null ? filters : getDefaultFilters();
+    }
+    
+    /**
+     * Gets filters specified in the query string of the current request.
+     * @return Filters. {@code null} if the query does not specify filters or
+     *         if they are invalid.
+     */
+    @CheckForNull
+    private JobsFilter getQueryFilters() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null || !isRequestTarget(req)) {
+            return null;
+        }
+        final ItemsMemo memo = ItemsMemo.of(req);
+        if (memo.hasQueryFilters(this)) {
+            return memo.getQueryFilters(this);
+        }
+        
+        JobsFilter filters = null;
+        try {
+            SearchQuery query = SearchQuery.fromParameters(req);
+            if (!query.isEmpty()) {
+                filters = query.toFilter(this);
+            }
+        } catch (IllegalArgumentException | JSONException | Descriptor.FormException | IOException ex) {
+            // Rejected by doIndex() and other entry points, fall back to defaults
+        }
+        memo.putQueryFilters(this, filters);
+        return filters;
+    }
+    
+    @CheckForNull
+    private JobsFilter getSessionFilters() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        final HttpSession session = req != null && isRequestTarget(req) ? req.getSession(false) : null;
+        if (session == null) {
+            return null;
+        }
+        final UserContext context = contextMap.get(session.getId());
+        return context != null ? context.getFiltersConfig() : null;
+    }
+    
+    /**
+     * Gets the normalized query string of the current search.
+     * @return Query string without the leading {@code ?}.
+     *         Empty string if the default filters are used.
+     * @since 0.4.1
+     */
+    @Nonnull
+    @Restricted(NoExternalUse.class)
+    public String getSearchQuery() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null) {
+            return "";
+        }
+        final SavedSearch saved = getSelectedSavedSearch();
+        if (saved != null) {
+            return saved.getUrlQuery();
+        }
+        if (getQueryFilters() == null) {
+            return "";
+        }
+        return SearchQuery.fromParameters(req).toQueryString();
     }
 
     /**
@@ -152,8 +624,19 @@ public class SimpleSearchView extends ListView {
      */
     @Nonnull
     public JobsFilter getDefaultFilters() {
-        return new JobsFilter(this, defaultJobFilters != null ? defaultJobFilters.toList() : null, 
-                defaultIncludeRegex, null);
+        JobsFilter filters = defaultFilters;
+        if (filters == null) {
+            // Otherwise filters built from old settings may overwrite the reset
+            synchronized (this) {
+                filters = defaultFilters;
+                if (filters == null) {
+                    filters = new JobsFilter(this, defaultJobFilters != null ? defaultJobFilters.toList() : null, 
+                            defaultIncludeRegex, null);
+                    defaultFilters = filters;
+                }
+            }
+        }
+        return filters;
     }
     
     /**
@@ -165,33 +648,394 @@ public class SimpleSearchView extends ListView {
     }
     
     @Restricted(NoExternalUse.class)
-    public void setDefaultIncludeRegex(String regex) {
+    public synchronized void setDefaultIncludeRegex(String regex) {
         this.defaultIncludeRegex = regex;
+        this.defaultFilters = null;
+    }
+    
+    @Restricted(NoExternalUse.class)
+    public synchronized void setDefaultJobFilters(@CheckForNull Collection<? extends ViewJobFilter> jobFilters) throws IOException {
+        if (defaultJobFilters == null) {
+            defaultJobFilters = new DescribableList<ViewJobFilter, Descriptor<ViewJobFilter>>(this);
+        }
+        defaultJobFilters.replaceBy(jobFilters != null ? jobFilters : Collections.<ViewJobFilter>emptyList());
+        defaultFilters = null;
     }
 
-    //TODO: Cleanup approach, replace for URL-based parameterization
     /**
      * Cleans internal cache of JSON Objects for the session.
      * @return Current Session Id
+     * @deprecated The search state is passed in the URL, the session does not need cleanup
      */
+    @Deprecated
     public String cleanCache() {
         final String sessionId = getSessionId();
         contextMap.flush(sessionId);
-        
-        //TODO: garbage collector       
         return sessionId;
     }
     
+    /**
+     * Gets items matching the search filters.
+     * The result is being calculated once per HTTP request, because the page
+     * rendering accesses the items several times.
+     * Results of equal searches are shared between requests until items change.
+     * If the request renders several search views of the same owner, e.g. 
+     * a dashboard does, the second one matches name patterns of all of them
+     * at once, see {@link #matchSiblingPatterns()}. Items are calculated 
+     * only for views, which the page requests. Pages of search views render
+     * their own view only, so they match nothing else.
+     * Results of {@link SavedSearch}es are taken as is.
+     * @return Read-only list of items
+     */
     @Override
     public List<TopLevelItem> getItems() {
-        // Handle filters from config
-        List<TopLevelItem> res = super.getItems(); 
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null) { // Not a web request, there is no session
+            return calculateItems(getDefaultFilters());
+        }
         
-        // Handle user-specified filters
-        JobsFilter filters = getFilters();
-        return filters.doFilter(res, this);
+        // Filters may change within the request (e.g. after cleanCache())
+        final long start = System.nanoTime();
+        final JobsFilter filters = getFilters();
+        ItemsMemo memo = ItemsMemo.of(req);
+        List<TopLevelItem> items = memo.get(this, filters);
+        final boolean memoHit = items != null;
+        if (items == null) {
+            final SavedSearch saved = getSelectedSavedSearch();
+            if (saved != null) {
+                items = saved.getItems(this);
+            } else {
+                if (req.findAncestorObject(SimpleSearchView.class) == null && memo.startBatch(this)) {
+                    matchSiblingPatterns();
+                }
+                items = calculateItems(filters);
+            }
+            memo.put(this, filters, items);
+        }
+        SearchMetrics.get().recordGetItems(System.nanoTime() - start, memoHit);
+        return items;
+    }
+    
+    /**
+     * Gets the page of items to be displayed.
+     * The offset is taken from the {@code offset} request parameter.
+     * If the {@link #isAsyncSearch() asynchronous search} is enabled, the page
+     * contains items found so far.
+     * @return Slice of {@link #getItems()} limited by {@link #getPageSize()}
+     * @since 0.4.1
+     */
+    @Nonnull
+    public ItemsPage getItemsPage() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        int offset = 0;
+        if (req != null) {
+            String value = Util.fixEmptyAndTrim(req.getParameter("offset"));
+            if (value != null) {
+                try {
+                    offset = Integer.parseInt(value);
+                } catch (NumberFormatException ex) {
+                    // Show the first page
+                }
+            }
+            // Saved searches have nothing to wait for
+            if (asyncSearch && getSelectedSavedSearch() == null) {
+                final AsyncSearch search = AsyncSearch.get(getSessionId(), this, getFilters());
+                // Take the state first, so the page includes all items of a completed search
+                final boolean complete = search.isDone();
+                return ItemsPage.of(search.getResults(), offset, pageSize, complete, search.isTruncated());
+            }
+        }
+        return ItemsPage.of(getItems(), offset, pageSize);
+    }
+    
+    /**
+     * Checks whether the current search has run out of its time budget.
+     * Then the results are incomplete.
+     * @return {@code true} if the name pattern took too long to match
+     * @see ItemsPage#isTruncated()
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public boolean isSearchTruncated() {
+        return getItemsPage().isTruncated();
+    }
+    
+    /**
+     * Gets the time budget of a search.
+     * @return Time in milliseconds. {@code 0} or negative value means no limit.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public long getSearchTimeBudget() {
+        return RegexGuard.TIME_BUDGET_MS;
+    }
+    
+    /**
+     * Calculates items for the current user.
+     * The search runs as {@link ACL#SYSTEM2}, so its results can be shared
+     * by all users with the same search. Then the results are filtered by
+     * permissions of the current user.
+     * {@link ViewJobFilter}s may depend on the current user, e.g. on 
+     * {@link hudson.model.User#current()}. So searches with them run as the 
+     * current user, and their results are shared only between sessions of
+     * the same user.
+     * @param filters Search filters
+     * @return Read-only list of items
+     */
+    @Nonnull
+    SearchResult calculateItems(@Nonnull final JobsFilter filters) {
+        final Authentication auth = Jenkins.getAuthentication2();
+        if (filters.hasJobFilters()) {
+            return resultsCache.get(filters, auth, () -> filters.search(this));
+        }
+        
+        final SearchResult found = resultsCache.get(filters, null, () -> {
+            try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+                // The filter searches in the name index of the owner group,
+                // so items of the ListView are not being collected
+                return filters.search(this);
+            }
+        });
+        final List<TopLevelItem> res = new ArrayList<TopLevelItem>(found.size());
+        for (TopLevelItem item : found) {
+            if (VisibleItems.isVisible(item, auth)) {
+                res.add(item);
+            }
+        }
+        return new SearchResult(res, found.isTruncated());
     }
 
+    /**
+     * Matches name patterns of search views of the same owner in a single 
+     * pass over the owner's items. Then views, which the page renders, pick
+     * their matches from the index cache once their items are requested.
+     * Nothing else is calculated for views, which the page does not render.
+     * Views, which recurse in subfolders, search on their own.
+     * Search parameters of the request do not apply to these views, so
+     * patterns of their {@link #getDefaultFilters() defaults} are matched.
+     */
+    private void matchSiblingPatterns() {
+        final List<JobsFilter> filters = new ArrayList<JobsFilter>();
+        for (View view : getOwner().getViews()) {
+            if (view instanceof SimpleSearchView && !((SimpleSearchView) view).isRecurse()) {
+                filters.add(((SimpleSearchView) view).getDefaultFilters());
+            }
+        }
+        if (filters.size() < 2) {
+            return;
+        }
+        try (ACLContext ctx = ACL.as2(ACL.SYSTEM2)) {
+            JobsFilter.matchPatterns(ItemNameIndex.of(getOwnerItemGroup()).getSnapshot(), filters);
+        }
+    }
+
+    /**
+     * Renders rows of the results table for the page specified by the 
+     * {@code offset} parameter. 
+     * Used to load further pages on demand.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public void doRows(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        checkPermission(View.READ);
+        if (!checkSearchQuery(req, rsp) || !checkAsyncSearch(rsp)) {
+            return;
+        }
+        req.getView(this, "itemsRows.jelly").forward(req, rsp);
+    }
+    
+    /**
+     * Renders the view page.
+     * The search is specified by query parameters, see {@link SearchQuery}.
+     * The page is not rendered again if the client has the version with 
+     * the same {@code ETag}.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        checkPermission(View.READ);
+        if (!checkSearchQuery(req, rsp) || !checkAsyncSearch(rsp)) {
+            return;
+        }
+        
+        // Let the browser cache the page, but revalidate it every time
+        rsp.setHeader("Cache-Control", "private, no-cache");
+        // The page of a background search changes while the search is running
+        if (!asyncSearch) {
+            final String etag = computeETag(req);
+            rsp.setHeader("ETag", etag);
+            if (matchesETag(req.getHeader("If-None-Match"), etag)) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        req.getView(this, "index.jelly").forward(req, rsp);
+    }
+    
+    /**
+     * Starts the {@link #isAsyncSearch() asynchronous search} of the request.
+     * If the search pool is full, the search is not run in the request thread.
+     * The client gets {@code 503} and retries later.
+     * @return {@code false} if the search has been rejected and the error has been sent
+     */
+    private boolean checkAsyncSearch(StaplerResponse rsp) throws IOException {
+        if (!asyncSearch || getSelectedSavedSearch() != null) {
+            return true;
+        }
+        if (!AsyncSearch.get(getSessionId(), this, getFilters()).isRejected()) {
+            return true;
+        }
+        rsp.setHeader("Retry-After", Integer.toString(AsyncSearch.RETRY_AFTER_SECONDS));
+        rsp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many searches are running, retry later");
+        return false;
+    }
+    
+    /**
+     * Validates the search query.
+     * @return {@code false} if the query is invalid and the error has been sent
+     */
+    private boolean checkSearchQuery(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        final String savedSearch = req.getParameter("savedSearch");
+        if (savedSearch != null && getSavedSearch(savedSearch) == null) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "No such saved search: " + savedSearch);
+            return false;
+        }
+        try {
+            SearchQuery.fromParameters(req).toFilter(this);
+            return true;
+        } catch (IllegalArgumentException | JSONException | Descriptor.FormException ex) {
+            // Also covers PatternSyntaxException
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Computes the entity tag of the page.
+     * The page depends on the effective search filters, which may come from
+     * the session as well, the state of items, the user and the CSRF crumb,
+     * which is embedded into forms.
+     */
+    @Nonnull
+    private String computeETag(@Nonnull StaplerRequest req) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        final CrumbIssuer crumbIssuer = jenkins != null ? jenkins.getCrumbIssuer() : null;
+        final StringBuilder buf = new StringBuilder();
+        buf.append(getViewUrl()).append('\n')
+                .append(getFilters().getCacheKey()).append('\n')
+                .append(req.getParameter("savedSearch")).append('\n')
+                .append(Util.fixEmptyAndTrim(req.getParameter("offset"))).append('\n')
+                .append(ItemsVersion.get()).append('\n')
+                .append(Jenkins.getAuthentication2().getName()).append('\n')
+                .append(crumbIssuer != null ? crumbIssuer.getCrumb(req) : null).append('\n')
+                .append(req.getLocale());
+        return '"' + Util.getDigestOf(buf.toString()) + '"';
+    }
+    
+    private static boolean matchesETag(@CheckForNull String ifNoneMatch, @Nonnull String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String value : ifNoneMatch.split(",")) {
+            String tag = value.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs a search without modifying the session state and streams the
+     * results as JSON.
+     * The filter is specified by {@code includeRegex}, {@code statusFilter}
+     * and {@code textQuery} parameters, see {@link SearchQuery}.
+     * Other parameters:
+     * <ul>
+     *   <li>{@code format} - {@code ndjson} (default) or {@code json}</li>
+     *   <li>{@code fields} - comma-separated list of item fields:
+     *       {@code name}, {@code fullName}, {@code displayName}, {@code url},
+     *       {@code disabled}, {@code color}, {@code description}</li>
+     *   <li>{@code offset}, {@code limit} - range of results</li>
+     * </ul>
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public void doQuery(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        checkPermission(View.READ);
+
+        final JobsFilter filter;
+        final SearchResultsWriter.Format format;
+        final EnumSet<SearchResultsWriter.Field> fields;
+        final int offset, limit;
+        try {
+            filter = SearchQuery.fromParameters(req).toFilter(this);
+            format = SearchResultsWriter.Format.fromString(req.getParameter("format"));
+            fields = SearchResultsWriter.Field.parse(req.getParameter("fields"));
+            offset = parseNonNegativeInt(req, "offset");
+            limit = parseNonNegativeInt(req, "limit");
+        } catch (IllegalArgumentException | JSONException | Descriptor.FormException ex) {
+            // Also covers PatternSyntaxException
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+
+        rsp.setContentType(format.getContentType() + ";charset=UTF-8");
+        final SearchResultsWriter writer = new SearchResultsWriter(rsp.getWriter(), format, fields, offset, limit);
+        writer.begin();
+        filter.forEachMatch(this, writer);
+        writer.end();
+    }
+
+    /**
+     * Completes item names for the search box.
+     * Parameters:
+     * <ul>
+     *   <li>{@code prefix} - typed beginning of the relative item name,
+     *       the case is ignored</li>
+     *   <li>{@code limit} - maximum number of completions, {@code 10} by default</li>
+     * </ul>
+     * The response contains completions visible to the user and the number
+     * of matching items, see {@link ItemNameSuggestions#toJSON()}.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public void doSuggest(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        checkPermission(View.READ);
+
+        final String prefix = Util.fixNull(req.getParameter("prefix"));
+        final int limit;
+        try {
+            limit = req.getParameter("limit") != null ? parseNonNegativeInt(req, "limit") : 10;
+        } catch (Descriptor.FormException ex) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+
+        final ItemNameSuggestions suggestions = ItemNameSuggestions.find(getOwnerItemGroup(), prefix,
+                Jenkins.getAuthentication2(), isRecurse(), maxSearchDepth, limit);
+        // Completions change together with items, the browser may reuse them for a while
+        rsp.setHeader("Cache-Control", "private, max-age=10");
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().write(suggestions.toJSON().toString());
+    }
+
+    /**
+     * Renders cells of {@link DeferredColumn deferred columns} for the jobs 
+     * specified by {@code job} parameters with full names.
+     * Used by the page to load cells for rows in the viewport.
+     * @since 0.4.1
+     */
+    @Restricted(NoExternalUse.class)
+    public void doColumns(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        checkPermission(View.READ);
+        req.getView(this, "columnCells.jelly").forward(req, rsp);
+    }
+
+    @RequirePOST
     @Restricted(NoExternalUse.class)
     @RestrictedSince("0.3.0")
     public void doSearchSubmit(StaplerRequest req, StaplerResponse rsp) 
@@ -202,24 +1046,106 @@ public class SimpleSearchView extends ListView {
             throw new IOException("Jenkins instance is not ready");
         }
         jenkins.checkPermission(View.READ);
+        final long start = System.nanoTime();
         SearchAction action = SearchAction.fromRequest(req);
         
         switch (action) {
             case runSearchButton:
-                JobsFilter filter = new JobsFilter(req, this);
-                updateSearchCache(filter);
-                rsp.sendRedirect(".");
+                SearchQuery query = SearchQuery.fromForm(req);
+                // Reject invalid searches before the redirect
+                JobsFilter filter = query.toFilter(this);
+                final String sessionId = getSessionId();
+                if (asyncSearch) {
+                    // Start the search while the browser follows the redirect
+                    AsyncSearch.get(sessionId, this, filter);
+                }
+                if (query.hasJobFilters()) {
+                    // Job filters are not passed in the URL, the session context keeps them
+                    contextMap.put(sessionId, new UserContext(filter));
+                    rsp.sendRedirect(".");
+                    break;
+                }
+                // Keep the search in the URL, so it can be bookmarked.
+                // It replaces the search kept in the session
+                contextMap.flush(sessionId);
+                rsp.sendRedirect(".?" + query.toQueryString());
                 break;
             case resetDefaultsButton:
-                updateSearchCache(getDefaultFilters());
+                // Default filters need no state, drop the one stored by API clients
+                final HttpSession session = req.getSession(false);
+                if (session != null) {
+                    contextMap.flush(session.getId());
+                }
                 rsp.sendRedirect(".");
                 break;
-            //TODO: Implement "Save As"
+            case saveSearch:
+                checkPermission(CONFIGURE);
+                SearchQuery saveQuery = SearchQuery.fromForm(req);
+                saveQuery.toFilter(this);
+                // Let the user name the search
+                rsp.sendRedirect("saveSearch?" + saveQuery.toQueryString());
+                break;
             default:
                 throw new IOException("Action "+action+" is not supported");
         } 
+        SearchMetrics.get().recordSearchSubmit(System.nanoTime() - start);
      }
     
+    /**
+     * Saves the search specified by query parameters, see {@link SearchQuery}.
+     * The name is taken from the {@code name} parameter.
+     * @since 0.4.1
+     */
+    @RequirePOST
+    @Restricted(NoExternalUse.class)
+    public void doSaveSearchSubmit(StaplerRequest req, StaplerResponse rsp) 
+            throws IOException, Descriptor.FormException {
+        checkPermission(CONFIGURE);
+        final String name = Util.fixEmptyAndTrim(req.getParameter("name"));
+        if (name == null) {
+            throw new Descriptor.FormException(Messages.SavedSearch_emptyName(), "name");
+        }
+        final SearchQuery query = SearchQuery.fromSubmittedParameters(req);
+        final JobsFilter filter = query.isEmpty() ? getDefaultFilters() : query.toFilter(this);
+        final SavedSearch search = saveSearch(name, filter);
+        rsp.sendRedirect(".?" + search.getUrlQuery());
+    }
+    
+    /**
+     * Deletes the saved search specified by the {@code name} parameter.
+     * @since 0.4.1
+     */
+    @RequirePOST
+    @Restricted(NoExternalUse.class)
+    public HttpResponse doDeleteSavedSearch(@QueryParameter String name) throws IOException {
+        checkPermission(CONFIGURE);
+        deleteSavedSearch(name);
+        return HttpResponses.redirectTo(".");
+    }
+    
+    /**
+     * Cancels the background search of the current session.
+     * The page invokes it when the user leaves.
+     * @since 0.4.1
+     */
+    @RequirePOST
+    @Restricted(NoExternalUse.class)
+    public HttpResponse doCancelSearch(StaplerRequest req) {
+        checkPermission(View.READ);
+        final HttpSession session = req.getSession(false);
+        if (session != null) {
+            AsyncSearch.cancel(session.getId(), this);
+        }
+        return HttpResponses.ok();
+    }
+    
+    /**
+     * Stores filters for the current session.
+     * They are used if the request does not specify a search query.
+     * @param filter Filters
+     * @deprecated The search state is passed in the URL, see {@link SearchQuery}
+     */
+    @Deprecated
     public void updateSearchCache(JobsFilter filter) {
         // Put Context to the map
         contextMap.put(getSessionId(), new UserContext(filter));
@@ -238,16 +1164,51 @@ public class SimpleSearchView extends ListView {
             return doCheckIncludeRegex(value);
         }
 
+        @Restricted(NoExternalUse.class)
+        public FormValidation doCheckSearchParallelism(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) != null 
+                    ? FormValidation.validateNonNegativeInteger(value) : FormValidation.ok();
+        }
+        
+        @Restricted(NoExternalUse.class)
+        public FormValidation doCheckMaxSearchDepth(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) != null 
+                    ? FormValidation.validateNonNegativeInteger(value) : FormValidation.ok();
+        }
+        
+        @Restricted(NoExternalUse.class)
+        public FormValidation doCheckPageSize(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) != null 
+                    ? FormValidation.validateNonNegativeInteger(value) : FormValidation.ok();
+        }
+
+        @Restricted(NoExternalUse.class)
+        public FormValidation doCheckTextQuery(@QueryParameter String value) {
+            String v = Util.fixEmptyAndTrim(value);
+            if (v != null) {
+                try {
+                    FullTextQuery.parse(v);
+                } catch (IllegalArgumentException ex) {
+                    return FormValidation.error(ex.getMessage());
+                }
+            }
+            return FormValidation.ok();
+        }
+
         @Restricted(NoExternalUse.class)
         @RestrictedSince("0.3.0")
         public FormValidation doCheckIncludeRegex( @QueryParameter String value ) throws IOException, ServletException, InterruptedException  {
             String v = Util.fixEmpty(value);
             if (v != null) {
                 try {
-                    Pattern.compile(v);
+                    PatternCache.compile(v);
                 } catch (PatternSyntaxException pse) {
                     return FormValidation.error(pse.getMessage());
                 }
+                final String repetition = RegexGuard.findNestedRepetition(v);
+                if (repetition != null) {
+                    return FormValidation.error(Messages.RegexGuard_nestedRepetition(repetition));
+                }
             }
             return FormValidation.ok();
         }   
@@ -270,6 +1231,92 @@ public class SimpleSearchView extends ListView {
         return !ViewJobFilter.all().isEmpty();
     }
     
+    /**
+     * Stores results of {@link #getItems()} and parsed search queries 
+     * within a single HTTP request.
+     * Entries are keyed by the view and by the filters, which have been used
+     * to calculate them.
+     * @since 0.4.1
+     */
+    private static final class ItemsMemo {
+        
+        private final Map<SimpleSearchView, Entry> entries = new IdentityHashMap<SimpleSearchView, Entry>();
+        private final Map<SimpleSearchView, JobsFilter> queryFilters = new IdentityHashMap<SimpleSearchView, JobsFilter>();
+        /**
+         * Owners of views, which items have been requested. 
+         * {@code true} once name patterns of all their views have been matched in a batch.
+         */
+        private final Map<ViewGroup, Boolean> owners = new IdentityHashMap<ViewGroup, Boolean>();
+        
+        @Nonnull
+        static ItemsMemo of(@Nonnull StaplerRequest req) {
+            Object memo = req.getAttribute(ITEMS_MEMO_ATTRIBUTE);
+            if (memo instanceof ItemsMemo) {
+                return (ItemsMemo) memo;
+            }
+            ItemsMemo newMemo = new ItemsMemo();
+            req.setAttribute(ITEMS_MEMO_ATTRIBUTE, newMemo);
+            return newMemo;
+        }
+        
+        @CheckForNull
+        List<TopLevelItem> get(@Nonnull SimpleSearchView view, @Nonnull JobsFilter filters) {
+            Entry entry = entries.get(view);
+            return entry != null && entry.filters == filters ? entry.items : null;
+        }
+        
+        void put(@Nonnull SimpleSearchView view, @Nonnull JobsFilter filters, 
+                @Nonnull List<TopLevelItem> items) {
+            entries.put(view, new Entry(filters, items));
+        }
+        
+        /**
+         * Checks whether name patterns of other views of the owner should be
+         * matched together with the pattern of the view.
+         * It happens once per owner, when items of the second view of the owner
+         * are requested. So pages with a single view do not match anything else.
+         * @param view View, which items are going to be calculated
+         * @return {@code true} if the batch should be calculated now
+         */
+        boolean startBatch(@Nonnull SimpleSearchView view) {
+            final Boolean batched = owners.get(view.getOwner());
+            if (batched == null) {
+                owners.put(view.getOwner(), Boolean.FALSE);
+                return false;
+            }
+            if (batched) {
+                return false;
+            }
+            owners.put(view.getOwner(), Boolean.TRUE);
+            return true;
+        }
+        
+        boolean hasQueryFilters(@Nonnull SimpleSearchView view) {
+            return queryFilters.containsKey(view);
+        }
+        
+        @CheckForNull
+        JobsFilter getQueryFilters(@Nonnull SimpleSearchView view) {
+            return queryFilters.get(view);
+        }
+        
+        void putQueryFilters(@Nonnull SimpleSearchView view, @CheckForNull JobsFilter filters) {
+            queryFilters.put(view, filters);
+        }
+        
+        private static final class Entry {
+            @Nonnull
+            private final JobsFilter filters;
+            @Nonnull
+            private final List<TopLevelItem> items;
+
+            Entry(@Nonnull JobsFilter filters, @Nonnull List<TopLevelItem> items) {
+                this.filters = filters;
+                this.items = items;
+            }
+        }
+    }
+    
     /**
      * Defines actions inside Search panel.
      * @since 0.2
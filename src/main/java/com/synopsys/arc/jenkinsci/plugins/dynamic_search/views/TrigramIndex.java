@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Trigram index over a sorted array of names.
+ * For every three-character sequence the index stores a sorted list of 
+ * positions of names containing it. Candidates for a regex are found by 
+ * intersecting lists for all trigrams of its {@link RegexLiterals literal fragments},
+ * then only the candidates need to be checked by the full {@link java.util.regex.Pattern}.
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class TrigramIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private static final Comparator<int[]> BY_LENGTH = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] o1, int[] o2) {
+            return Integer.compare(o1.length, o2.length);
+        }
+    };
+
+    @Nonnull
+    private final Map<Long, int[]> postings;
+
+    private TrigramIndex(@Nonnull Map<Long, int[]> postings) {
+        this.postings = postings;
+    }
+
+    @Nonnull
+    static TrigramIndex build(@Nonnull String[] names) {
+        final Map<Long, IntList> lists = new HashMap<Long, IntList>();
+        for (int id = 0; id < names.length; id++) {
+            final String name = names[id];
+            for (int j = 0; j + 3 <= name.length(); j++) {
+                final Long key = key(name, j);
+                IntList list = lists.get(key);
+                if (list == null) {
+                    list = new IntList();
+                    lists.put(key, list);
+                }
+                list.addIfLast(id);
+            }
+        }
+
+        final Map<Long, int[]> postings = new HashMap<Long, int[]>(lists.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, IntList> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return new TrigramIndex(postings);
+    }
+
+    /**
+     * Finds names, which may match an expression with the specified literal fragments.
+     * @param literals Fragments, which must be present in all matching names
+     * @return Sorted positions of candidate names. 
+     *         {@code null} if there are no fragments with three or more 
+     *         characters, i.e. all names are candidates.
+     */
+    @CheckForNull
+    int[] candidates(@Nonnull List<String> literals) {
+        final List<int[]> lists = new ArrayList<int[]>();
+        for (String literal : literals) {
+            for (int j = 0; j + 3 <= literal.length(); j++) {
+                final int[] list = postings.get(key(literal, j));
+                if (list == null) { // No names contain the trigram
+                    return NONE;
+                }
+                lists.add(list);
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+
+        // Start from the shortest lists in order to shrink the result fast
+        Collections.sort(lists, BY_LENGTH);
+        int[] res = lists.get(0);
+        for (int k = 1; k < lists.size() && res.length > 0; k++) {
+            res = intersect(res, lists.get(k));
+        }
+        return res;
+    }
+
+    @Nonnull
+    private static int[] intersect(@Nonnull int[] a, @Nonnull int[] b) {
+        final int[] res = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                res[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == res.length ? res : Arrays.copyOf(res, n);
+    }
+
+    private static long key(@Nonnull String str, int pos) {
+        return ((long) str.charAt(pos) << 32) | ((long) str.charAt(pos + 1) << 16) | str.charAt(pos + 2);
+    }
+
+    /**
+     * Growable list of sorted positions.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        /**
+         * Adds the value unless it has been just added for another trigram 
+         * occurrence in the same name.
+         */
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Nonnull
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -35,10 +35,41 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 @Restricted(NoExternalUse.class)
 class UserContext {
     
+    /**
+     * Rough size of the context object itself.
+     */
+    private static final long SHALLOW_SIZE_BYTES = 24;
+    
     private final JobsFilter filtersConfig;
     
+    /**
+     * Time of the last access in milliseconds.
+     */
+    private volatile long lastAccessed;
+    
     public UserContext( @Nonnull JobsFilter filtersConfig) {
         this.filtersConfig = filtersConfig;
+        this.lastAccessed = System.currentTimeMillis();
+    }
+    
+    long getLastAccessed() {
+        return lastAccessed;
+    }
+    
+    void touch(long now) {
+        lastAccessed = now;
+    }
+    
+    boolean isExpired(long now, long idleTimeout) {
+        return now - lastAccessed > idleTimeout;
+    }
+    
+    /**
+     * Estimates the heap size retained by the context.
+     * @return Size in bytes
+     */
+    long estimateRetainedBytes() {
+        return SHALLOW_SIZE_BYTES + filtersConfig.estimateRetainedBytes();
     }
 
     @Nonnull
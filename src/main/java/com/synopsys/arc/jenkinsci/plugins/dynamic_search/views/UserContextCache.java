@@ -23,38 +23,251 @@
  */
 package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
 
-import static com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SimpleSearchView.getSessionId;
-import java.util.HashMap;
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpSessionEvent;
+import jenkins.util.HttpSessionListener;
+import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Stores search sessions for {@link SimpleSearchView}.
+ * The cache is bounded by {@link #MAX_SIZE}. Entries get evicted when the 
+ * HTTP session is destroyed or when they are not accessed for 
+ * {@link #IDLE_TIMEOUT_MS}.
  * @author Oleg Nenashev
  * @since 0.2
  */
 @Restricted(NoExternalUse.class)
 class UserContextCache {
-    Map<String, UserContext> contextMap = new HashMap<String, UserContext>();
     
-    public synchronized boolean containsKey(String sessionId) {
-        return contextMap.containsKey(sessionId);
+    /**
+     * Maximum number of sessions stored by a single view.
+     * @since 0.4.1
+     */
+    static final int MAX_SIZE = SystemProperties.getInteger(
+            UserContextCache.class.getName() + ".maxSize", 1000);
+    
+    /**
+     * Time, after which an unused session context gets evicted.
+     * @since 0.4.1
+     */
+    static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(SystemProperties.getLong(
+            UserContextCache.class.getName() + ".idleTimeoutMinutes", 30L));
+    
+    /**
+     * Rough size of a map entry and of a session id string without characters.
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+    
+    /**
+     * All caches, which are being used by views.
+     */
+    private static final Set<UserContextCache> INSTANCES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<UserContextCache, Boolean>()));
+    
+    private final ConcurrentMap<String, UserContext> contextMap = new ConcurrentHashMap<String, UserContext>();
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    /**
+     * Source of the current time in milliseconds.
+     */
+    @Nonnull
+    private final LongSupplier clock;
+    
+    UserContextCache() {
+        this(MAX_SIZE, IDLE_TIMEOUT_MS, System::currentTimeMillis);
+    }
+    
+    /**
+     * Constructs a cache with custom limits.
+     * @param maxSize Maximum number of stored sessions
+     * @param idleTimeoutMs Time, after which an unused context gets evicted
+     * @param clock Source of the current time in milliseconds
+     * @since 0.4.1
+     */
+    UserContextCache(int maxSize, long idleTimeoutMs, @Nonnull LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.clock = clock;
+        INSTANCES.add(this);
+    }
+    
+    public boolean containsKey(String sessionId) {
+        return get(sessionId) != null;
     }
     
     @CheckForNull
-    public synchronized UserContext get(String sessionId) {
-        return contextMap.get(sessionId);
+    public UserContext get(String sessionId) {
+        final UserContext context = contextMap.get(sessionId);
+        if (context == null) {
+            SearchMetrics.get().recordSessionContext(false);
+            return null;
+        }
+        
+        final long now = clock.getAsLong();
+        if (context.isExpired(now, idleTimeoutMs)) {
+            contextMap.remove(sessionId, context);
+            SearchMetrics.get().recordSessionContext(false);
+            return null;
+        }
+        context.touch(now);
+        SearchMetrics.get().recordSessionContext(true);
+        return context;
     }
     
-    public synchronized void flush(String sessionId) {
-        if (contextMap.containsKey(sessionId)) {
-            contextMap.remove(sessionId);
-        }      
+    public void flush(String sessionId) {
+        contextMap.remove(sessionId);
     }
     
-    public synchronized void put (String sessionId, UserContext context) {
-        contextMap.put(getSessionId(), context);
+    public void put (String sessionId, UserContext context) {
+        context.touch(clock.getAsLong());
+        contextMap.put(sessionId, context);
+        if (contextMap.size() > maxSize) {
+            evict();
+        }
     } 
+    
+    /**
+     * Gets number of stored session contexts.
+     * @return Number of entries
+     * @since 0.4.1
+     */
+    public int size() {
+        return contextMap.size();
+    }
+    
+    /**
+     * Estimates the heap size retained by the cache.
+     * The estimate is rough, it does not include {@link hudson.views.ViewJobFilter}
+     * internals and objects shared with other caches.
+     * @return Size in bytes
+     * @since 0.4.1
+     */
+    public long estimateRetainedBytes() {
+        long res = 0;
+        for (Map.Entry<String, UserContext> entry : contextMap.entrySet()) {
+            res += ENTRY_OVERHEAD_BYTES + 2L * entry.getKey().length() 
+                    + entry.getValue().estimateRetainedBytes();
+        }
+        return res;
+    }
+    
+    /**
+     * Removes contexts, which have not been accessed for the idle timeout.
+     */
+    void purgeExpired() {
+        final long now = clock.getAsLong();
+        for (Map.Entry<String, UserContext> entry : contextMap.entrySet()) {
+            if (entry.getValue().isExpired(now, idleTimeoutMs)) {
+                contextMap.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Shrinks the cache below its maximum size.
+     * Expired entries go first, then the least recently used ones.
+     */
+    private void evict() {
+        purgeExpired();
+        
+        // Remove 10% of entries at once in order to amortize the sorting
+        final int target = maxSize - maxSize / 10;
+        final int toRemove = contextMap.size() - target;
+        if (toRemove <= 0) {
+            return;
+        }
+        final List<Map.Entry<String, UserContext>> entries = new ArrayList<Map.Entry<String, UserContext>>(contextMap.entrySet());
+        Collections.sort(entries, (a, b) -> Long.compare(a.getValue().getLastAccessed(), b.getValue().getLastAccessed()));
+        for (int i = 0; i < toRemove && i < entries.size(); i++) {
+            contextMap.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+    
+    @Nonnull
+    private static List<UserContextCache> allCaches() {
+        synchronized (INSTANCES) {
+            return new ArrayList<UserContextCache>(INSTANCES);
+        }
+    }
+    
+    /**
+     * Gets number of session contexts stored by all views.
+     * @return Number of entries
+     * @since 0.4.1
+     */
+    static int getTotalSize() {
+        int res = 0;
+        for (UserContextCache cache : allCaches()) {
+            res += cache.size();
+        }
+        return res;
+    }
+    
+    /**
+     * Estimates the heap size retained by caches of all views.
+     * @return Size in bytes
+     * @see #estimateRetainedBytes() 
+     * @since 0.4.1
+     */
+    static long estimateTotalRetainedBytes() {
+        long res = 0;
+        for (UserContextCache cache : allCaches()) {
+            res += cache.estimateRetainedBytes();
+        }
+        return res;
+    }
+    
+    /**
+     * Removes contexts of destroyed sessions from all views.
+     * @since 0.4.1
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SessionListenerImpl extends HttpSessionListener {
+
+        @Override
+        public void sessionDestroyed(HttpSessionEvent se) {
+            final String sessionId = se.getSession().getId();
+            for (UserContextCache cache : allCaches()) {
+                cache.flush(sessionId);
+            }
+        }
+    }
+    
+    /**
+     * Periodically removes expired contexts, e.g. ones of API clients, which 
+     * never render the view.
+     * @since 0.4.1
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class CleanupWork extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return 5 * MIN;
+        }
+
+        @Override
+        protected void doRun() throws Exception {
+            for (UserContextCache cache : allCaches()) {
+                cache.purgeExpired();
+            }
+        }
+    }
 }
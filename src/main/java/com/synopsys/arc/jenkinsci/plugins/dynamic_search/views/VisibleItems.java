@@ -0,0 +1,244 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.TopLevelItem;
+import hudson.model.User;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.AuthorizationStrategy;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Caches items, which are visible to users.
+ * For every {@link ItemNameIndex.Snapshot} and authentication the cache stores 
+ * a bit set of items with the {@link Item#READ} permission, so searches 
+ * intersect found items with it instead of checking the ACL of every item.
+ * <ul>
+ *   <li>Entries expire after {@link #TTL_SECONDS}, because permissions may 
+ *       depend on external data like groups of the security realm.</li>
+ *   <li>All entries are dropped when items change, when the authorization 
+ *       strategy gets replaced, or when the global configuration or users 
+ *       get saved.</li>
+ *   <li>Snapshots are replaced on changes of their items, so entries of 
+ *       obsolete snapshots get garbage collected with them.</li>
+ * </ul>
+ * @since 0.4.1
+ */
+@Restricted(NoExternalUse.class)
+final class VisibleItems {
+
+    /**
+     * Time to live of cached entries.
+     * {@code 0} disables the cache, permissions are checked for every item then.
+     */
+    static final long TTL_SECONDS = SystemProperties.getLong(
+            VisibleItems.class.getName() + ".ttlSeconds", 30L);
+
+    /**
+     * Maximum number of authentications, for which a snapshot stores visible items.
+     */
+    static final int MAX_USERS = SystemProperties.getInteger(
+            VisibleItems.class.getName() + ".maxUsers", 256);
+
+    /**
+     * Version of permissions, entries of other versions are obsolete.
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    @Nonnull
+    private final BitSet bits;
+    private final long version;
+    private final long expiresAt;
+    @CheckForNull
+    private final AuthorizationStrategy strategy;
+
+    private VisibleItems(@Nonnull BitSet bits, long version, long expiresAt, 
+            @CheckForNull AuthorizationStrategy strategy) {
+        this.bits = bits;
+        this.version = version;
+        this.expiresAt = expiresAt;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Gets items of the snapshot, which are visible to the user.
+     * @param index Snapshot of the group
+     * @param auth Authentication
+     * @return Shared bit set of visible items, it must not be modified.
+     *         {@code null} if the cache is disabled, then callers check
+     *         permissions on their own.
+     */
+    @CheckForNull
+    static BitSet get(@Nonnull ItemNameIndex.Snapshot index, @Nonnull Authentication auth) {
+        if (TTL_SECONDS <= 0) {
+            return null;
+        }
+        if (auth == ACL.SYSTEM2) {
+            return index.all();
+        }
+
+        final ConcurrentMap<String, VisibleItems> entries = index.getVisibleItems();
+        final String key = getKey(auth);
+        final AuthorizationStrategy strategy = getAuthorizationStrategy();
+        final long now = System.nanoTime();
+        VisibleItems entry = entries.get(key);
+        final boolean hit = entry != null && entry.version == VERSION.get() 
+                && now - entry.expiresAt < 0 && entry.strategy == strategy;
+        SearchMetrics.get().recordVisibleItemsCache(hit);
+        if (hit) {
+            return entry.bits;
+        }
+
+        // Changes made during the calculation make the entry obsolete
+        final long currentVersion = VERSION.get();
+        final BitSet bits = new BitSet(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            if (index.getItem(i).getACL().hasPermission2(auth, Item.READ)) {
+                bits.set(i);
+            }
+        }
+        if (entries.size() >= MAX_USERS) {
+            entries.clear();
+        }
+        entries.put(key, new VisibleItems(bits, currentVersion, 
+                now + TimeUnit.SECONDS.toNanos(TTL_SECONDS), strategy));
+        return bits;
+    }
+
+    /**
+     * Checks whether the item is visible to the user.
+     * The cached entry of the item group is used if the item is indexed.
+     * @param item Item
+     * @param auth Authentication
+     * @return {@code true} if the user has the {@link Item#READ} permission
+     */
+    static boolean isVisible(@Nonnull TopLevelItem item, @Nonnull Authentication auth) {
+        final ItemGroup<? extends Item> parent = item.getParent();
+        if (TTL_SECONDS > 0 && parent != null) {
+            final ItemNameIndex.Snapshot index = ItemNameIndex.of(parent).getSnapshot();
+            final int pos = index.indexOf(item.getName());
+            // The snapshot may be outdated, then the ACL is checked directly
+            if (pos >= 0 && index.getItem(pos) == item) {
+                final BitSet bits = get(index, auth);
+                if (bits != null) {
+                    return bits.get(pos);
+                }
+            }
+        }
+        return item.getACL().hasPermission2(auth, Item.READ);
+    }
+
+    /**
+     * Drops all cached entries.
+     */
+    static void invalidate() {
+        VERSION.incrementAndGet();
+    }
+
+    /**
+     * Gets the key of the authentication.
+     * Authentications of the same user may have different authorities,
+     * e.g. if groups are not available for API tokens.
+     */
+    @Nonnull
+    static String getKey(@Nonnull Authentication auth) {
+        return auth.getName() + '\n' + auth.getAuthorities();
+    }
+
+    @CheckForNull
+    private static AuthorizationStrategy getAuthorizationStrategy() {
+        final Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null ? jenkins.getAuthorizationStrategy() : null;
+    }
+
+    /**
+     * Permissions may be inherited from parent folders, so changes of any 
+     * item invalidate all entries.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            invalidate();
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidate();
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onLoaded() {
+            invalidate();
+        }
+    }
+
+    /**
+     * Tracks changes of the security configuration and of user records.
+     * Saves of builds and other data are ignored.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class SaveableListenerImpl extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Jenkins || o instanceof User || o instanceof Item) {
+                invalidate();
+            }
+        }
+    }
+}
@@ -3,7 +3,13 @@ package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
 t=namespace(lib.JenkinsTagLib)
 st=namespace("jelly:stapler")
 
-if (my.items.isEmpty()) {
+def page = my.itemsPage
+if (page.truncated) {
+    div(class: "warning dsv-truncated") {
+        text(_("truncated", my.searchTimeBudget))
+    }
+}
+if (page.total == 0 && page.complete) {
     if (app.items.size() != 0) {
         set("views",my.owner.views);
         set("currentView",my);
@@ -11,7 +17,7 @@ if (my.items.isEmpty()) {
     }
     include(my,"noJob.jelly");
 } else {
-    t.projectView(jobs: my.items, showViewTabs: true, columnExtensions: my.columns, 
+    t.projectView(jobs: page.items, showViewTabs: true, columnExtensions: my.displayedColumns, 
                   indenter: my.indenter, itemGroup: my.owner.itemGroup) {
         set("views",my.owner.views);
         set("currentView",my);
@@ -21,4 +27,29 @@ if (my.items.isEmpty()) {
             include(my.owner.viewsTabBar,"viewTabs");
         }
     }
+    // Cells of deferred columns are loaded for rows in the viewport, also on other pages
+    if (my.deferColumns) {
+        div(class: "dsv-deferred-columns", "data-columns-url": "columns")
+        script(src: "${request.contextPath}/plugin/dynamic-search-view/scripts/deferredColumns.js", type: "text/javascript")
+    }
+    // Other pages are loaded by the script, the link works without JavaScript
+    // Results of a background search are polled until the search completes
+    if (page.hasMore()) {
+        // Keep the search query, it is not stored on the server
+        def query = my.searchQuery ? my.searchQuery + "&" : ""
+        def attrs = [href: "?${query}offset=${page.nextOffset}", class: "dsv-load-more-link", 
+                     "data-rows-url": "rows?${query}offset=${page.nextOffset}",
+                     "data-load-more-text": _("loadMore"),
+                     "data-truncated-text": _("truncated", my.searchTimeBudget)]
+        if (!page.complete) {
+            attrs["data-searching"] = "true"
+            attrs["data-cancel-url"] = "cancelSearch"
+        }
+        div(class: "dsv-load-more") {
+            a(attrs) {
+                text(page.complete ? _("loadMore") : _("searching"))
+            }
+        }
+        script(src: "${request.contextPath}/plugin/dynamic-search-view/scripts/itemsTable.js", type: "text/javascript")
+    }
 }
\ No newline at end of file
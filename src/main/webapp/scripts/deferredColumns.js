@@ -0,0 +1,109 @@
+/*
+ * Loads cells of deferred columns of the Dynamic Search View results table.
+ * Cells are requested in batches for rows, which get close to the viewport.
+ * Rows appended by itemsTable.js are picked up as well.
+ */
+(function () {
+    var BATCH_SIZE = 50;
+    var DELAY_MS = 50;
+
+    function init() {
+        var marker = document.querySelector(".dsv-deferred-columns");
+        var table = document.getElementById("projectstatus");
+        if (!marker || !table || !window.fetch) {
+            return;
+        }
+        var url = marker.getAttribute("data-columns-url");
+        // Placeholder cells of jobs, which should be loaded, by full names
+        var pending = {};
+        var timer = null;
+        var loading = false;
+
+        function schedule() {
+            if (!timer && !loading) {
+                timer = setTimeout(flush, DELAY_MS);
+            }
+        }
+
+        function enqueue(cell) {
+            var job = cell.getAttribute("data-dsv-job");
+            (pending[job] = pending[job] || []).push(cell);
+            schedule();
+        }
+
+        function flush() {
+            timer = null;
+            var jobs = Object.keys(pending).slice(0, BATCH_SIZE);
+            if (jobs.length === 0) {
+                return;
+            }
+            var cells = {};
+            var query = jobs.map(function (job) {
+                cells[job] = pending[job];
+                delete pending[job];
+                return "job=" + encodeURIComponent(job);
+            }).join("&");
+            loading = true;
+            fetch(url + "?" + query, { credentials: "same-origin" }).then(function (rsp) {
+                if (!rsp.ok) {
+                    throw new Error("HTTP " + rsp.status);
+                }
+                return rsp.text();
+            }).then(function (html) {
+                var template = document.createElement("template");
+                template.innerHTML = html;
+                template.content.querySelectorAll("tr[data-dsv-job]").forEach(function (row) {
+                    var loaded = row.querySelectorAll(":scope > td");
+                    (cells[row.getAttribute("data-dsv-job")] || []).forEach(function (cell) {
+                        var replacement = loaded[Number(cell.getAttribute("data-dsv-column"))];
+                        if (replacement && cell.parentNode) {
+                            cell.parentNode.replaceChild(document.importNode(replacement, true), cell);
+                        }
+                    });
+                });
+            }).catch(function () {
+                // Cells stay empty, the rest of the table is usable
+            }).then(function () {
+                loading = false;
+                schedule();
+            });
+        }
+
+        var observer = window.IntersectionObserver ? new IntersectionObserver(function (entries) {
+            entries.forEach(function (entry) {
+                if (entry.isIntersecting) {
+                    observer.unobserve(entry.target);
+                    enqueue(entry.target);
+                }
+            });
+        }, { rootMargin: "200px" }) : null;
+
+        function watch(root) {
+            root.querySelectorAll("td.dsv-deferred-cell").forEach(function (cell) {
+                if (observer) {
+                    observer.observe(cell);
+                } else {
+                    enqueue(cell);
+                }
+            });
+        }
+
+        watch(table);
+        // Further pages of results
+        new MutationObserver(function (mutations) {
+            mutations.forEach(function (mutation) {
+                mutation.addedNodes.forEach(function (node) {
+                    if (node.nodeType === Node.ELEMENT_NODE) {
+                        watch(node);
+                    }
+                });
+            });
+        }).observe(table, { childList: true, subtree: true });
+    }
+
+    if (document.readyState === "loading") {
+        document.addEventListener("DOMContentLoaded", init);
+    } else {
+        init();
+    }
+})();
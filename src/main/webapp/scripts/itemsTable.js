@@ -0,0 +1,115 @@
+/*
+ * Loads further pages of the Dynamic Search View results table on demand.
+ * Rows are appended to the table rendered by itemsTable.groovy.
+ * Results of a background search are polled until the search completes.
+ */
+(function () {
+    function init() {
+        var link = document.querySelector(".dsv-load-more-link");
+        var table = document.getElementById("projectstatus");
+        if (!link || !table) {
+            return; // Fall back to the plain link
+        }
+        var loading = false;
+        var searching = link.getAttribute("data-searching") === "true";
+        var POLL_INTERVAL_MS = 1000;
+
+        function loadMore() {
+            var url = link.getAttribute("data-rows-url");
+            if (loading || !url) {
+                return;
+            }
+            loading = true;
+            fetch(url, { credentials: "same-origin" }).then(function (rsp) {
+                if (rsp.status === 503 && searching) {
+                    // Too many searches are running, the server asks to retry later
+                    var retryAfter = parseInt(rsp.headers.get("Retry-After"), 10);
+                    loading = false;
+                    setTimeout(loadMore, retryAfter > 0 ? retryAfter * 1000 : POLL_INTERVAL_MS);
+                    return;
+                }
+                if (!rsp.ok) {
+                    throw new Error("HTTP " + rsp.status);
+                }
+                var nextOffset = rsp.headers.get("X-Dynamic-Search-Next-Offset");
+                var complete = rsp.headers.get("X-Dynamic-Search-Complete") !== "false";
+                return rsp.text().then(function (html) {
+                    var template = document.createElement("template");
+                    template.innerHTML = html;
+                    var body = table.tBodies.length > 0 ? table.tBodies[table.tBodies.length - 1] : table;
+                    var rows = template.content.querySelectorAll("tbody > tr");
+                    rows.forEach(function (row) {
+                        body.appendChild(document.importNode(row, true));
+                    });
+                    if (rsp.headers.get("X-Dynamic-Search-Truncated") === "true"
+                            && !document.querySelector(".dsv-truncated")) {
+                        var warning = document.createElement("div");
+                        warning.className = "warning dsv-truncated";
+                        warning.textContent = link.getAttribute("data-truncated-text");
+                        table.parentNode.insertBefore(warning, table);
+                    }
+                    if (searching && complete) {
+                        searching = false;
+                        link.textContent = link.getAttribute("data-load-more-text");
+                    }
+                    if (nextOffset) {
+                        link.setAttribute("data-rows-url", url.replace(/offset=\d+/, "offset=" + nextOffset));
+                        link.setAttribute("href", link.getAttribute("href").replace(/offset=\d+/, "offset=" + nextOffset));
+                        loading = false;
+                        if (searching) {
+                            // Poll at once if the search keeps finding items
+                            setTimeout(loadMore, rows.length > 0 ? 0 : POLL_INTERVAL_MS);
+                        }
+                    } else {
+                        link.parentNode.removeChild(link);
+                        if (observer) {
+                            observer.disconnect();
+                        }
+                    }
+                });
+            }).catch(function () {
+                loading = false; // Let the user retry by the link
+            });
+        }
+
+        // Stop the background search once the user leaves the page
+        window.addEventListener("pagehide", function () {
+            var cancelUrl = link.getAttribute("data-cancel-url");
+            if (!searching || !cancelUrl || !navigator.sendBeacon) {
+                return;
+            }
+            var data = new FormData();
+            if (window.crumb && crumb.fieldName) {
+                data.append(crumb.fieldName, crumb.value);
+            }
+            navigator.sendBeacon(cancelUrl, data);
+        });
+
+        link.addEventListener("click", function (e) {
+            e.preventDefault();
+            loadMore();
+        });
+
+        // Infinite scroll: load the next page once the link becomes visible
+        var observer = null;
+        if ("IntersectionObserver" in window) {
+            observer = new IntersectionObserver(function (entries) {
+                entries.forEach(function (entry) {
+                    if (entry.isIntersecting) {
+                        loadMore();
+                    }
+                });
+            });
+            observer.observe(link);
+        }
+        if (searching) {
+            loadMore();
+        }
+    }
+
+    if (document.readyState === "loading") {
+        document.addEventListener("DOMContentLoaded", init);
+    } else {
+        init();
+    }
+})();
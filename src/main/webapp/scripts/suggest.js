@@ -0,0 +1,109 @@
+/*
+ * Suggests item names for the name pattern of the Dynamic Search View.
+ * Requests are debounced, only the response to the latest input is displayed.
+ * Completions are offered by a datalist, so the browser renders them natively.
+ */
+(function () {
+    var DEBOUNCE_MS = 150;
+    var LIMIT = 10;
+    // Characters with a special meaning in regular expressions
+    var SPECIAL = ".*+?^$()[]{}|\\";
+
+    function escapeRegex(name) {
+        var res = "";
+        for (var i = 0; i < name.length; i++) {
+            var c = name.charAt(i);
+            res += SPECIAL.indexOf(c) >= 0 ? "\\" + c : c;
+        }
+        return res;
+    }
+
+    // Gets the literal beginning of the expression, which all matching names start with
+    function literalPrefix(value) {
+        var res = "";
+        for (var i = 0; i < value.length; i++) {
+            var c = value.charAt(i);
+            if (c === "\\" && i + 1 < value.length && !/[A-Za-z0-9]/.test(value.charAt(i + 1))) {
+                c = value.charAt(++i);
+            } else if (SPECIAL.indexOf(c) >= 0) {
+                // The last character is optional if a quantifier follows
+                return "*?{".indexOf(c) >= 0 ? res.substring(0, res.length - 1) : res;
+            }
+            res += c;
+        }
+        return res;
+    }
+
+    function init() {
+        var container = document.querySelector(".dsv-suggest");
+        var form = document.querySelector("form[name=config]");
+        var input = form ? form.querySelector("input[name='_.includeRegex']") : null;
+        if (!container || !input || !window.fetch) {
+            return;
+        }
+        var list = document.createElement("datalist");
+        list.id = "dsv-suggestions";
+        container.appendChild(list);
+        var count = document.createElement("span");
+        count.className = "dsv-suggest-count";
+        container.appendChild(count);
+        input.setAttribute("list", list.id);
+        input.setAttribute("autocomplete", "off");
+
+        var timer = null;
+        var latest = 0;
+        var controller = null;
+
+        function show(prefix, data) {
+            list.innerHTML = "";
+            data.suggestions.forEach(function (suggestion) {
+                var option = document.createElement("option");
+                option.value = escapeRegex(suggestion.name);
+                list.appendChild(option);
+                if (suggestion.group) {
+                    // Let the user continue in the folder
+                    var nested = document.createElement("option");
+                    nested.value = escapeRegex(suggestion.name + "/");
+                    list.appendChild(nested);
+                }
+            });
+            count.textContent = prefix === "" ? "" 
+                    : data.count + (data.exact ? " " : "+ ") + container.getAttribute("data-count-text");
+        }
+
+        function suggest() {
+            var prefix = literalPrefix(input.value);
+            var request = ++latest;
+            if (controller) {
+                controller.abort();
+            }
+            controller = window.AbortController ? new AbortController() : null;
+            var url = container.getAttribute("data-suggest-url") 
+                    + "?limit=" + LIMIT + "&prefix=" + encodeURIComponent(prefix);
+            fetch(url, { credentials: "same-origin", signal: controller ? controller.signal : undefined })
+                    .then(function (rsp) {
+                        if (!rsp.ok) {
+                            throw new Error("HTTP " + rsp.status);
+                        }
+                        return rsp.json();
+                    }).then(function (data) {
+                        if (request === latest) {
+                            show(prefix, data);
+                        }
+                    }).catch(function () {
+                        // Completions are optional, the search works without them
+                    });
+        }
+
+        input.addEventListener("input", function () {
+            clearTimeout(timer);
+            timer = setTimeout(suggest, DEBOUNCE_MS);
+        });
+    }
+
+    if (document.readyState === "loading") {
+        document.addEventListener("DOMContentLoaded", init);
+    } else {
+        init();
+    }
+})();
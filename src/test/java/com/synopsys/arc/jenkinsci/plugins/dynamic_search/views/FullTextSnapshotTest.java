@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link FullTextSnapshot}.
+ */
+public class FullTextSnapshotTest {
+    
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+    
+    @Test
+    public void readsTermsOfTheSameVersion() throws Exception {
+        File file = new File(tmp.getRoot(), "index.bin");
+        Set<String> terms = new TreeSet<String>();
+        terms.add("name:foo");
+        terms.add("description:bar");
+        FullTextSnapshot.write(file, "1.0/2.346.3", Collections.singletonMap("folder/foo", terms), 
+                Collections.singletonMap("folder/foo", 42L));
+        
+        Map<String, FullTextSnapshot.Entry> saved = FullTextSnapshot.read(file, "1.0/2.346.3");
+        assertNotNull(saved);
+        assertEquals(1, saved.size());
+        FullTextSnapshot.Entry entry = saved.get("folder/foo");
+        assertTrue(entry.matches(42L));
+        assertArrayEquals(new String[] {"description:bar", "name:foo"}, 
+                new TreeSet<String>(Arrays.asList(entry.getTerms())).toArray());
+    }
+    
+    @Test
+    public void ignoresSnapshotsOfOtherVersions() throws Exception {
+        File file = new File(tmp.getRoot(), "index.bin");
+        FullTextSnapshot.write(file, "1.0/2.346.3", Collections.singletonMap("foo", Collections.singleton("name:foo")), 
+                Collections.singletonMap("foo", 42L));
+        
+        assertNull("Terms may be extracted differently by the new plugin", FullTextSnapshot.read(file, "1.1/2.346.3"));
+        assertNull("Fields may be provided differently by the new core", FullTextSnapshot.read(file, "1.0/2.361.1"));
+        assertNull(FullTextSnapshot.read(new File(tmp.getRoot(), "missing.bin"), "1.0/2.346.3"));
+    }
+}
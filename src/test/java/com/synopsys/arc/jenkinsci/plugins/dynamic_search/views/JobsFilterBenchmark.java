@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import hudson.ExtensionList;
+import hudson.model.Descriptor;
+import hudson.model.FreeStyleProject;
+import hudson.model.TopLevelItem;
+import hudson.model.View;
+import hudson.views.ViewJobFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks of {@link JobsFilter#doFilter(List, View)} and of retrieval of 
+ * filters by {@link SimpleSearchView}.
+ * Jobs are named {@code job-0}, {@code job-1}, etc., every 10th job is disabled.
+ * Results reflect the steady state, where the name index and cached regex 
+ * matches have been built by the warmup.
+ */
+@JmhBenchmark
+public class JobsFilterBenchmark {
+
+    private static final List<TopLevelItem> NO_ITEMS = Collections.emptyList();
+
+    public static class ItemsState extends JmhBenchmarkState {
+
+        @Param({"1000", "10000", "100000"})
+        public int size;
+
+        SimpleSearchView view;
+        JobsFilter literal;
+        JobsFilter prefix;
+        JobsFilter contains;
+        JobsFilter suffix;
+        JobsFilter alternation;
+        JobsFilter charClass;
+        JobsFilter enabledOnly;
+        JobsFilter disabledOnly;
+        JobsFilter withJobFilters;
+
+        @Override
+        public void setup() throws Exception {
+            final Jenkins jenkins = getJenkins();
+            ExtensionList.lookup(Descriptor.class).add(new PassThroughFilter.DescriptorImpl());
+            for (int i = 0; i < size; i++) {
+                FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "job-" + i);
+                if (i % 10 == 0) {
+                    project.disable();
+                }
+            }
+            
+            view = new SimpleSearchView("benchmark");
+            view.setDefaultIncludeRegex("job-1.*");
+            jenkins.addView(view);
+            
+            literal = new JobsFilter(view, null, "job-" + (size / 2), null);
+            prefix = new JobsFilter(view, null, "job-42.*", null);
+            contains = new JobsFilter(view, null, ".*42.*", null);
+            suffix = new JobsFilter(view, null, ".*99", null);
+            alternation = new JobsFilter(view, null, "job-1.*|job-2.*", null);
+            charClass = new JobsFilter(view, null, "job-[0-9]+7", null);
+            enabledOnly = new JobsFilter(view, null, null, true);
+            disabledOnly = new JobsFilter(view, null, null, false);
+            withJobFilters = new JobsFilter(view, 
+                    Arrays.<ViewJobFilter>asList(new PassThroughFilter(), new PassThroughFilter()), "job-1.*", null);
+        }
+    }
+
+    @Benchmark
+    public List<TopLevelItem> literal(ItemsState state) {
+        return state.literal.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> prefix(ItemsState state) {
+        return state.prefix.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> contains(ItemsState state) {
+        return state.contains.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> suffix(ItemsState state) {
+        return state.suffix.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> alternation(ItemsState state) {
+        return state.alternation.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> charClass(ItemsState state) {
+        return state.charClass.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> enabledOnly(ItemsState state) {
+        return state.enabledOnly.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> disabledOnly(ItemsState state) {
+        return state.disabledOnly.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public List<TopLevelItem> withJobFilters(ItemsState state) {
+        return state.withJobFilters.doFilter(NO_ITEMS, state.view);
+    }
+
+    @Benchmark
+    public JobsFilter getFilters(ItemsState state) {
+        return state.view.getFilters();
+    }
+
+    @Benchmark
+    public JobsFilter getDefaultFilters(ItemsState state) {
+        return state.view.getDefaultFilters();
+    }
+
+    @Benchmark
+    public List<TopLevelItem> getItems(ItemsState state) {
+        return state.view.getItems();
+    }
+
+    /**
+     * Stub filter, which keeps all items.
+     */
+    public static class PassThroughFilter extends ViewJobFilter {
+
+        @Override
+        public List<TopLevelItem> filter(List<TopLevelItem> added, List<TopLevelItem> all, View filteringView) {
+            return added;
+        }
+
+        public static class DescriptorImpl extends Descriptor<ViewJobFilter> {
+
+            public DescriptorImpl() {
+                super(PassThroughFilter.class);
+            }
+
+            @Override
+            public String getDisplayName() {
+                return "Pass-through filter";
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests of {@link RegexLiterals}.
+ */
+public class RegexLiteralsTest {
+    
+    @Test
+    public void plainLiterals() {
+        assertLiterals("abc", "abc");
+        assertLiterals("foo.*bar", "foo", "bar");
+        assertLiterals("^job-$", "job-");
+    }
+    
+    @Test
+    public void alternations() {
+        assertLiterals("foo|bar");
+        assertLiterals("x(foo|bar)y", "x", "y");
+    }
+    
+    @Test
+    public void optionalParts() {
+        assertLiterals("(abc)?def", "def");
+        assertLiterals("abc?d", "ab", "d");
+        assertLiterals("abc*d", "ab", "d");
+        assertLiterals("abc{0,2}d", "ab", "d");
+        assertLiterals("ab+c", "ab", "c");
+        assertLiterals("ab*?c", "a", "c");
+    }
+    
+    @Test
+    public void escapes() {
+        assertLiterals("a\\.b", "a.b");
+        assertLiterals("\\d+abc\\s", "abc");
+        assertLiterals("\\Qa.b\\E.*", "a.b");
+        assertLiterals("\\Qa.b\\E?c", "a.", "c");
+        assertLiterals("\\u0041bc");
+        assertLiterals("(a)\\1");
+    }
+    
+    @Test
+    public void characterClasses() {
+        assertLiterals("[abc]def", "def");
+        assertLiterals("ab[^]x]cd", "ab", "cd");
+        assertLiterals("ab[[a-z]&&[^x]]+cd", "ab", "cd");
+        assertLiterals("ab[x");
+    }
+    
+    @Test
+    public void flags() {
+        assertLiterals("(?i)abc");
+        assertLiterals("abc(?i:def)");
+    }
+    
+    private static void assertLiterals(String regex, String ... expected) {
+        final List<String> res = RegexLiterals.extract(regex);
+        assertEquals(regex, expected.length == 0 ? Collections.<String>emptyList() : Arrays.asList(expected), res);
+    }
+}
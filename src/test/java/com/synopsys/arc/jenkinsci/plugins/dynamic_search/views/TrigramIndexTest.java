@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Tests of the {@link TrigramIndex} prefilter.
+ * Groups in tests are small, so the threshold of the index is lowered.
+ */
+public class TrigramIndexTest {
+    
+    private static final String[] REGEXES = {
+        "foo.*", ".*bar", ".*-core-.*", "app-(web|api)-.*", "(?i)APP.*", "lib_core\\.release",
+        "a[bc]d.*", ".*build\\d*", "x?yz.*", "\\Qa.b\\E.*", "nomatch-at-all", ".*ease", 
+        "foo(bar)?", "app-w?eb-.*", ".*r[e]lease.*"
+    };
+    
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    
+    @Test
+    public void prefilterKeepsAllMatches() throws Exception {
+        for (String name : Arrays.asList("foo", "foobar", "barfoo", "xyz-build", "yz-build12", 
+                "app-web-core-1", "app-api-core-2", "app-eb-3", "APP-web", "lib_core.release", 
+                "lib_core-release", "abd-release", "acd", "a.b-1", "ab-1", "easy")) {
+            j.createFreeStyleProject(name);
+        }
+        final ItemNameIndex.Snapshot index = ItemNameIndex.of(j.jenkins).getSnapshot();
+        
+        for (String regex : REGEXES) {
+            final Pattern pattern = Pattern.compile(regex);
+            final int[] candidates = index.findCandidates(RegexLiterals.extract(regex), 0);
+            for (int i = 0; i < index.size(); i++) {
+                if (pattern.matcher(index.getName(i)).matches()) {
+                    assertTrue(index.getName(i) + " is not a candidate for " + regex, 
+                            candidates == null || Arrays.binarySearch(candidates, i) >= 0);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void prefilterSkipsNonMatchingNames() throws Exception {
+        for (String name : Arrays.asList("lib_core.release", "lib_core-release", "app-web")) {
+            j.createFreeStyleProject(name);
+        }
+        final ItemNameIndex.Snapshot index = ItemNameIndex.of(j.jenkins).getSnapshot();
+        
+        final int[] candidates = index.findCandidates(RegexLiterals.extract("lib_core\\.release"), 0);
+        assertNotNull(candidates);
+        assertArrayEquals(new int[] {index.indexOf("lib_core.release")}, candidates);
+        assertEquals(0, index.findCandidates(RegexLiterals.extract("missing.*"), 0).length);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of {@link UserContextCache} operations.
+ * The cache is half full, so puts of new sessions do not trigger evictions 
+ * until the cache fills up.
+ */
+@JmhBenchmark
+public class UserContextCacheBenchmark {
+
+    public static class CacheState extends JmhBenchmarkState {
+
+        UserContextCache cache;
+        UserContext context;
+        String[] storedIds;
+
+        @Override
+        public void setup() throws Exception {
+            SimpleSearchView view = new SimpleSearchView("benchmark");
+            getJenkins().addView(view);
+            context = new UserContext(new JobsFilter(view, null, "job-.*", null));
+            cache = new UserContextCache();
+            storedIds = new String[Math.max(1, UserContextCache.MAX_SIZE / 2)];
+            for (int i = 0; i < storedIds.length; i++) {
+                storedIds[i] = "session-" + i;
+                cache.put(storedIds[i], context);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public UserContext getHit(CacheState state, Cursor cursor) {
+        return state.cache.get(state.storedIds[cursor.next(state.storedIds.length)]);
+    }
+
+    @Benchmark
+    public UserContext getMiss(CacheState state, Cursor cursor) {
+        return state.cache.get("missing-" + cursor.next(state.storedIds.length));
+    }
+
+    @Benchmark
+    public void putNewSession(CacheState state, Cursor cursor) {
+        state.cache.put("new-" + Thread.currentThread().getId() + "-" + cursor.next(Integer.MAX_VALUE), state.context);
+    }
+
+    @Benchmark
+    public long estimateRetainedBytes(CacheState state) {
+        return state.cache.estimateRetainedBytes();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.synopsys.arc.jenkinsci.plugins.dynamic_search.views;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Tests of {@link UserContextCache}.
+ * The cache uses a manual clock, so idle timeouts expire without waiting.
+ */
+public class UserContextCacheTest {
+    
+    private static final long IDLE_TIMEOUT_MS = 1000;
+    
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    
+    private final AtomicLong now = new AtomicLong(1000000);
+    private JobsFilter filter;
+    
+    @Before
+    public void setUp() throws Exception {
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        filter = new JobsFilter(view, null, "a.*", null);
+    }
+    
+    @Test
+    public void idleContextsExpire() {
+        UserContextCache cache = new UserContextCache(10, IDLE_TIMEOUT_MS, now::get);
+        UserContext context = new UserContext(filter);
+        cache.put("s1", context);
+        
+        // Access resets the idle time
+        now.addAndGet(IDLE_TIMEOUT_MS);
+        assertSame(context, cache.get("s1"));
+        now.addAndGet(IDLE_TIMEOUT_MS);
+        assertSame(context, cache.get("s1"));
+        
+        now.addAndGet(IDLE_TIMEOUT_MS + 1);
+        assertNull(cache.get("s1"));
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void leastRecentlyUsedContextsAreEvicted() {
+        UserContextCache cache = new UserContextCache(10, IDLE_TIMEOUT_MS, now::get);
+        for (int i = 0; i < 10; i++) {
+            cache.put("s" + i, new UserContext(filter));
+            now.incrementAndGet();
+        }
+        assertNotNull(cache.get("s0"));
+        now.incrementAndGet();
+        
+        // The 11th session shrinks the cache to 90%, s1 and s2 are the least recently used ones
+        cache.put("s10", new UserContext(filter));
+        assertEquals(9, cache.size());
+        assertNotNull(cache.get("s0"));
+        assertNull(cache.get("s1"));
+        assertNotNull(cache.get("s10"));
+    }
+    
+    @Test
+    public void expiredContextsAreEvictedFirst() {
+        UserContextCache cache = new UserContextCache(10, IDLE_TIMEOUT_MS, now::get);
+        for (int i = 0; i < 5; i++) {
+            cache.put("old" + i, new UserContext(filter));
+        }
+        now.addAndGet(IDLE_TIMEOUT_MS + 1);
+        for (int i = 0; i < 6; i++) {
+            cache.put("new" + i, new UserContext(filter));
+        }
+        assertEquals(6, cache.size());
+        assertNotNull(cache.get("new0"));
+        assertNull(cache.get("old0"));
+    }
+    
+    @Test
+    public void destroyedSessionsAreRemoved() {
+        UserContextCache cache = new UserContextCache(10, IDLE_TIMEOUT_MS, now::get);
+        cache.put("s1", new UserContext(filter));
+        cache.put("s2", new UserContext(filter));
+        
+        new UserContextCache.SessionListenerImpl().sessionDestroyed(new HttpSessionEvent(session("s1")));
+        assertNull(cache.get("s1"));
+        assertNotNull(cache.get("s2"));
+    }
+    
+    @Test
+    public void periodicWorkPurgesExpiredContexts() throws Exception {
+        UserContextCache cache = new UserContextCache(10, IDLE_TIMEOUT_MS, now::get);
+        cache.put("s1", new UserContext(filter));
+        now.addAndGet(IDLE_TIMEOUT_MS / 2);
+        cache.put("s2", new UserContext(filter));
+        
+        now.addAndGet(IDLE_TIMEOUT_MS / 2 + 1);
+        new UserContextCache.CleanupWork().doRun();
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("s2"));
+    }
+    
+    private static HttpSession session(final String id) {
+        return (HttpSession) Proxy.newProxyInstance(UserContextCacheTest.class.getClassLoader(), 
+                new Class<?>[] {HttpSession.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getId")) {
+                        return id;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
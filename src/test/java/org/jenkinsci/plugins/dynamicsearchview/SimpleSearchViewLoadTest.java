@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.dynamicsearchview;
+
+import com.gargoylesoftware.htmlunit.html.HtmlForm;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SearchMetrics;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SimpleSearchView;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Load test of {@link SimpleSearchView} with many concurrent sessions.
+ * Each client searches for its own group of jobs, renders the results and
+ * resets the search. The test fails if a client gets results of another one.
+ * The scale is configured by system properties, e.g. 
+ * {@code mvn test -Dtest=SimpleSearchViewLoadTest -DloadTest.clients=200 -DloadTest.jobs=20000}:
+ * <ul>
+ *   <li>{@code loadTest.clients} - number of concurrent web clients</li>
+ *   <li>{@code loadTest.jobs} - number of generated jobs</li>
+ *   <li>{@code loadTest.iterations} - number of searches per client</li>
+ * </ul>
+ * Throughput, latencies and retained heap are printed to the standard output.
+ */
+public class SimpleSearchViewLoadTest {
+    
+    private static final int CLIENTS = Integer.getInteger("loadTest.clients", 8);
+    private static final int JOBS = Integer.getInteger("loadTest.jobs", 400);
+    private static final int ITERATIONS = Integer.getInteger("loadTest.iterations", 3);
+    
+    private static final Pattern JOB_ID = Pattern.compile("id=\"job_([^\"]+)\"");
+    
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    
+    @Test(timeout = 30 * 60 * 1000)
+    public void concurrentSessions() throws Exception {
+        for (int i = 0; i < JOBS; i++) {
+            j.createFreeStyleProject(jobName(i % CLIENTS, i));
+        }
+        
+        final SimpleSearchView view = new SimpleSearchView("loadTest");
+        // Defaults match jobs of the first client only
+        view.setDefaultIncludeRegex("group0-.*");
+        j.jenkins.addView(view);
+        
+        final Set<String> defaults = expectedJobs(0);
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        final long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        final long contextsBefore = SearchMetrics.get().getLiveSessionContexts();
+        
+        final ConcurrentLinkedQueue<Long> submitNanos = new ConcurrentLinkedQueue<Long>();
+        final ConcurrentLinkedQueue<Long> renderNanos = new ConcurrentLinkedQueue<Long>();
+        final ConcurrentLinkedQueue<Long> resetNanos = new ConcurrentLinkedQueue<Long>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        final List<Future<Void>> clients = new ArrayList<Future<Void>>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                final int client = c;
+                clients.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        final JenkinsRule.WebClient webClient = j.createWebClient();
+                        webClient.getOptions().setJavaScriptEnabled(false);
+                        webClient.getOptions().setCssEnabled(false);
+                        final Set<String> expected = expectedJobs(client);
+                        start.await();
+                        
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            long time = System.nanoTime();
+                            HtmlPage page = webClient.goTo(view.getUrl());
+                            renderNanos.add(System.nanoTime() - time);
+                            assertEquals("Client " + client + " got results of another session", 
+                                    defaults, jobsOnPage(page));
+                            
+                            HtmlForm form = page.getFormByName("config");
+                            form.getInputByName("_.includeRegex").setValueAttribute("group" + client + "-.*");
+                            time = System.nanoTime();
+                            page = j.submit(form, "runSearchButton");
+                            submitNanos.add(System.nanoTime() - time);
+                            assertEquals("Client " + client + " got results of another session", 
+                                    expected, jobsOnPage(page));
+                            
+                            form = page.getFormByName("config");
+                            time = System.nanoTime();
+                            page = j.submit(form, "resetDefaultsButton");
+                            resetNanos.add(System.nanoTime() - time);
+                            assertEquals("Client " + client + " got results of another session", 
+                                    defaults, jobsOnPage(page));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            
+            final long startTime = System.nanoTime();
+            start.countDown();
+            for (Future<Void> client : clients) {
+                client.get(); // Propagates assertion failures
+            }
+            final long elapsed = System.nanoTime() - startTime;
+            
+            final long contexts = SearchMetrics.get().getLiveSessionContexts() - contextsBefore;
+            assertTrue("The search state should live in the URL, got session contexts: " + contexts, contexts <= 0);
+            
+            memory.gc();
+            final long heapAfter = memory.getHeapMemoryUsage().getUsed();
+            final int operations = submitNanos.size() + renderNanos.size() + resetNanos.size();
+            System.out.println(String.format("Load test: %d clients, %d jobs, %d iterations", 
+                    CLIENTS, JOBS, ITERATIONS));
+            System.out.println(String.format("  Throughput: %.1f requests/s", 
+                    operations / (elapsed / 1e9)));
+            report("  Render", renderNanos);
+            report("  Search submit", submitNanos);
+            report("  Reset", resetNanos);
+            System.out.println(String.format("  Retained heap: %d KB, session contexts: %d KB", 
+                    (heapAfter - heapBefore) / 1024, SearchMetrics.get().getSessionContextRetainedBytes() / 1024));
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+    
+    private static String jobName(int group, int index) {
+        return "group" + group + "-job" + index;
+    }
+    
+    private static Set<String> expectedJobs(int group) {
+        final Set<String> res = new TreeSet<String>();
+        for (int i = group; i < JOBS; i += CLIENTS) {
+            res.add(jobName(group, i));
+        }
+        return res;
+    }
+    
+    private static Set<String> jobsOnPage(HtmlPage page) {
+        final Set<String> res = new TreeSet<String>();
+        final Matcher m = JOB_ID.matcher(page.getWebResponse().getContentAsString());
+        while (m.find()) {
+            res.add(m.group(1));
+        }
+        return res;
+    }
+    
+    private static void report(String operation, ConcurrentLinkedQueue<Long> samples) {
+        final List<Long> sorted = new ArrayList<Long>(samples);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            return;
+        }
+        final long p50 = sorted.get((sorted.size() - 1) / 2);
+        final long p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        System.out.println(String.format("%s: %d requests, p50 %.1f ms, p99 %.1f ms, max %.1f ms", 
+                operation, sorted.size(), p50 / 1e6, p99 / 1e6, sorted.get(sorted.size() - 1) / 1e6));
+    }
+}
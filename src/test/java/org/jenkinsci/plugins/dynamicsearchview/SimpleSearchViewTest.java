@@ -23,13 +23,62 @@
  */
 package org.jenkinsci.plugins.dynamicsearchview;
 
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.html.HtmlForm;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.ItemsPage;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.JobsFilter;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SavedSearch;
+import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SearchMetrics;
 import com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.SimpleSearchView;
+import hudson.model.Descriptor;
 import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.PeriodicWork;
+import hudson.model.TopLevelItem;
+import hudson.model.UnprotectedRootAction;
+import hudson.model.User;
+import hudson.model.View;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.FormValidation;
+import hudson.views.ViewJobFilter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.ObjectName;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.Bug;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.MockFolder;
+import org.jvnet.hudson.test.TestExtension;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 /**
  * Tests of {@link SimpleSearchView}.
@@ -61,4 +110,850 @@ public class SimpleSearchViewTest {
         j.jenkins.reload();
         res = webClient.goTo(view.getUrl());
     }
+    
+    @Test
+    public void itemsAreFilteredOncePerRender() throws Exception {
+        j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex(".*");
+        view.setDefaultJobFilters(Collections.singletonList(new CountingJobFilter()));
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.getOptions().setJavaScriptEnabled(false);
+        
+        CountingJobFilter.INVOCATIONS.set(0);
+        webClient.goTo(view.getUrl());
+        assertEquals("JobsFilter#doFilter() should be invoked once per page render", 
+                1, CountingJobFilter.INVOCATIONS.get());
+        
+        CountingJobFilter.INVOCATIONS.set(0);
+        webClient.goTo(view.getUrl());
+        assertEquals("Results should be shared between requests", 
+                0, CountingJobFilter.INVOCATIONS.get());
+        
+        j.createFreeStyleProject("c");
+        webClient.goTo(view.getUrl());
+        assertEquals("Results must be recalculated once items change", 
+                1, CountingJobFilter.INVOCATIONS.get());
+    }
+    
+    @Test
+    public void resultsAreSharedBetweenUsers() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ).everywhere().toEveryone()
+                .grant(Item.READ).everywhere().to("alice")
+                .grant(Item.READ).onItems(a).to("bob"));
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex(".*");
+        j.jenkins.addView(view);
+        
+        SearchMetrics metrics = SearchMetrics.get();
+        long searches = metrics.getFilterCount();
+        User alice = User.getById("alice", true);
+        try (ACLContext ctx = ACL.as2(alice.impersonate2())) {
+            assertItems(view, "a", "b");
+        }
+        // Saves of users do not invalidate results
+        User bob = User.getById("bob", true);
+        bob.save();
+        try (ACLContext ctx = ACL.as2(bob.impersonate2())) {
+            assertItems(view, "a");
+        }
+        assertEquals("The search should run once for both users", searches + 1, metrics.getFilterCount());
+        
+        // Reconfiguration drops cached results
+        view.setOptimizeJobFilters(true);
+        try (ACLContext ctx = ACL.as2(bob.impersonate2())) {
+            assertItems(view, "a");
+        }
+        assertEquals(searches + 2, metrics.getFilterCount());
+    }
+    
+    @Test
+    public void jobFiltersRunAsCurrentUser() throws Exception {
+        j.createFreeStyleProject("alice");
+        j.createFreeStyleProject("bob");
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ, Item.READ).everywhere().toEveryone());
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultJobFilters(Collections.singletonList(new CurrentUserJobFilter()));
+        j.jenkins.addView(view);
+        SavedSearch search = view.saveSearch("mine", view.getDefaultFilters());
+        
+        CurrentUserJobFilter.INVOCATIONS.set(0);
+        User alice = User.getById("alice", true);
+        try (ACLContext ctx = ACL.as2(alice.impersonate2())) {
+            assertItems(view, "alice");
+            assertItems(view, "alice");
+            assertSavedItems(view, search, "alice");
+        }
+        assertEquals("Results should be shared by sessions of the user", 1, CurrentUserJobFilter.INVOCATIONS.get());
+        try (ACLContext ctx = ACL.as2(User.getById("bob", true).impersonate2())) {
+            assertItems(view, "bob");
+            assertSavedItems(view, search, "bob");
+        }
+        assertEquals(2, CurrentUserJobFilter.INVOCATIONS.get());
+    }
+    
+    @Test
+    public void visibleItemsAreCached() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ).everywhere().toEveryone()
+                .grant(Item.READ).onItems(a).to("alice"));
+        User alice = User.getById("alice", true);
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        SearchMetrics metrics = SearchMetrics.get();
+        try (ACLContext ctx = ACL.as2(alice.impersonate2())) {
+            assertItems(view, "a");
+            double hitRatio = metrics.getVisibleItemsCacheHitRatio();
+            assertItems(view, "a");
+            assertTrue("Permissions should not be checked again", metrics.getVisibleItemsCacheHitRatio() > hitRatio);
+        }
+        
+        // Replacing the authorization strategy drops the cache
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ).everywhere().toEveryone()
+                .grant(Item.READ).everywhere().to("alice"));
+        try (ACLContext ctx = ACL.as2(alice.impersonate2())) {
+            assertItems(view, "a", "b");
+        }
+        
+        j.createFreeStyleProject("c");
+        try (ACLContext ctx = ACL.as2(alice.impersonate2())) {
+            assertItems(view, "a", "b", "c");
+        }
+    }
+    
+    @Test
+    public void itemsFollowJobChanges() throws Exception {
+        j.createFreeStyleProject("a");
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("a.*");
+        j.jenkins.addView(view);
+        assertItems(view, "a");
+        
+        FreeStyleProject ab = j.createFreeStyleProject("ab");
+        j.createFreeStyleProject("b");
+        assertItems(view, "a", "ab");
+        
+        ab.renameTo("ac");
+        assertItems(view, "a", "ac");
+        ab.renameTo("b2");
+        assertItems(view, "a");
+        
+        j.jenkins.getItem("a").delete();
+        assertItems(view);
+    }
+    
+    @Test
+    public void savedSearch() throws Exception {
+        j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("a.*");
+        j.jenkins.addView(view);
+        view.saveSearch("as", view.getDefaultFilters());
+        view.setDefaultIncludeRegex(".*");
+        
+        // Results are stored apart from the view configuration
+        assertFalse(readJenkinsConfig().contains("<items>"));
+        j.jenkins.reload();
+        view = (SimpleSearchView) j.jenkins.getView("testView");
+        SavedSearch search = view.getSavedSearch("as");
+        assertNotNull(search);
+        assertSavedItems(view, search, "a");
+        
+        // Changed items are re-tested without searching again
+        String config = readJenkinsConfig();
+        long searches = SearchMetrics.get().getFilterCount();
+        FreeStyleProject ab = j.createFreeStyleProject("ab");
+        j.createFreeStyleProject("c");
+        assertSavedItems(view, search, "a", "ab");
+        ab.renameTo("b2");
+        assertSavedItems(view, search, "a");
+        ab.renameTo("ac");
+        j.jenkins.getItem("a").delete();
+        assertSavedItems(view, search, "ac");
+        assertEquals(searches, SearchMetrics.get().getFilterCount());
+        
+        // Changed results do not save the view
+        SavedSearch.onShutdown();
+        assertEquals(config, readJenkinsConfig());
+        j.jenkins.reload();
+        view = (SimpleSearchView) j.jenkins.getView("testView");
+        search = view.getSavedSearch("as");
+        assertSavedItems(view, search, "ac");
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        HtmlPage res = webClient.goTo(view.getUrl() + "?" + search.getUrlQuery());
+        assertNotNull(res.getElementById("job_ac"));
+        assertNull(res.getElementById("job_c"));
+        webClient.assertFails(view.getUrl() + "?savedSearch=missing", 404);
+        
+        view.deleteSavedSearch("as");
+        assertTrue(view.getSavedSearches().isEmpty());
+    }
+    
+    @Test
+    public void recursiveSearch() throws Exception {
+        j.createFreeStyleProject("a");
+        MockFolder folder = j.createFolder("f");
+        folder.createProject(FreeStyleProject.class, "a");
+        MockFolder subfolder = folder.createProject(MockFolder.class, "sub");
+        subfolder.createProject(FreeStyleProject.class, "a");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("(.*/)?a");
+        j.jenkins.addView(view);
+        assertItems(view, "a");
+        
+        view.setRecurse(true);
+        assertItems(view, "a", "a", "a");
+        view.setSearchParallelism(4);
+        assertItems(view, "a", "a", "a");
+        view.setMaxSearchDepth(1);
+        assertItems(view, "a", "a");
+        
+        view.setDefaultIncludeRegex("f/.*");
+        view.setMaxSearchDepth(0);
+        assertItems(view, "a", "sub", "a");
+    }
+    
+    @Test
+    public void defaultFiltersAreReused() throws Exception {
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("a.*");
+        j.jenkins.addView(view);
+        
+        JobsFilter filters = view.getDefaultFilters();
+        assertSame(filters, view.getDefaultFilters());
+        
+        view.setDefaultIncludeRegex("b.*");
+        assertNotSame(filters, view.getDefaultFilters());
+        assertEquals("b.*", view.getDefaultFilters().getIncludeRegex());
+    }
+    
+    @Test
+    public void pagination() throws Exception {
+        j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        j.createFreeStyleProject("c");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex(".*");
+        view.setPageSize(2);
+        j.jenkins.addView(view);
+        
+        ItemsPage page = view.getItemsPage();
+        assertEquals(3, page.getTotal());
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasMore());
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        HtmlPage res = webClient.goTo(view.getUrl());
+        assertNotNull(res.getElementById("job_b"));
+        assertNull(res.getElementById("job_c"));
+        
+        String rows = webClient.goTo(view.getUrl() + "rows?offset=2").getWebResponse().getContentAsString();
+        assertTrue(rows.contains("job_c"));
+        assertFalse(rows.contains("job_b"));
+    }
+    
+    @Test
+    public void deferredColumns() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        j.buildAndAssertSuccess(a);
+        MockFolder folder = j.createFolder("f");
+        folder.createProject(FreeStyleProject.class, "b");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setRecurse(true);
+        view.setDeferColumns(true);
+        j.jenkins.addView(view);
+        int deferred = view.getDeferredColumns().size();
+        assertTrue("Build columns should be deferred", deferred > 0);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.getOptions().setJavaScriptEnabled(false);
+        HtmlPage res = webClient.goTo(view.getUrl());
+        assertNotNull(res.getElementById("job_a"));
+        assertEquals(3 * deferred, res.getByXPath("//td[@class='dsv-deferred-cell']").size());
+        
+        String cells = webClient.goTo(view.getUrl() + "columns?job=a&job=f/b&job=missing")
+                .getWebResponse().getContentAsString();
+        assertTrue(cells.contains("data-dsv-job=\"a\""));
+        assertTrue(cells.contains("data-dsv-job=\"f/b\""));
+        assertTrue(cells.contains("lastSuccessfulBuild"));
+        assertFalse(cells.contains("missing"));
+        assertFalse(cells.contains("dsv-deferred-cell"));
+        
+        view.setDeferColumns(false);
+        assertTrue(view.getDeferredColumns().isEmpty());
+        assertEquals(view.getColumns(), view.getDisplayedColumns());
+    }
+    
+    @Test
+    public void asyncSearch() throws Exception {
+        j.createFreeStyleProject("a1");
+        j.createFreeStyleProject("a2");
+        j.createFreeStyleProject("b");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setAsyncSearch(true);
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.getOptions().setJavaScriptEnabled(false);
+        webClient.goTo(view.getUrl() + "?includeRegex=a.*");
+        
+        // Poll the results like the page script does
+        StringBuilder rows = new StringBuilder();
+        int offset = 0;
+        for (int i = 0; i < 100; i++) {
+            WebResponse rsp = webClient.goTo(view.getUrl() + "rows?includeRegex=a.*&offset=" + offset)
+                    .getWebResponse();
+            rows.append(rsp.getContentAsString());
+            String nextOffset = rsp.getResponseHeaderValue("X-Dynamic-Search-Next-Offset");
+            if (nextOffset != null) {
+                offset = Integer.parseInt(nextOffset);
+            }
+            if ("true".equals(rsp.getResponseHeaderValue("X-Dynamic-Search-Complete")) && nextOffset == null) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertTrue(rows.toString().contains("job_a1"));
+        assertTrue(rows.toString().contains("job_a2"));
+        assertFalse(rows.toString().contains("job_b"));
+        
+        WebRequest cancel = new WebRequest(new URL(j.getURL(), view.getUrl() + "cancelSearch"), HttpMethod.POST);
+        webClient.addCrumb(cancel);
+        assertEquals(200, webClient.loadWebResponse(cancel).getStatusCode());
+    }
+    
+    @Test(timeout = 60000)
+    public void catastrophicPattern() throws Exception {
+        // Takes exponential time to find out that the name does not match
+        j.createFreeStyleProject("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaab");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("((a+)+)+c");
+        j.jenkins.addView(view);
+        
+        long searches = SearchMetrics.get().getFilterCount();
+        assertItems(view);
+        assertTrue("The search should be stopped by the time budget", view.isSearchTruncated());
+        assertEquals("Truncated results should not be cached", searches + 2, SearchMetrics.get().getFilterCount());
+        
+        SimpleSearchView.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(SimpleSearchView.DescriptorImpl.class);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckIncludeRegex("((a+)+)+c").kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckIncludeRegex("a+c").kind);
+    }
+    
+    @Test
+    public void searchQueryInUrl() throws Exception {
+        j.createFreeStyleProject("a");
+        j.createFreeStyleProject("b");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex(".*");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.getOptions().setJavaScriptEnabled(false);
+        HtmlPage res = webClient.goTo(view.getUrl() + "?includeRegex=a");
+        assertNotNull(res.getElementById("job_a"));
+        assertNull(res.getElementById("job_b"));
+        
+        // The search is not stored in the session
+        res = webClient.goTo(view.getUrl());
+        assertNotNull(res.getElementById("job_a"));
+        assertNotNull(res.getElementById("job_b"));
+        
+        HtmlForm form = res.getFormByName("config");
+        form.getInputByName("_.includeRegex").setValueAttribute("b");
+        res = j.submit(form, "runSearchButton");
+        assertTrue(res.getUrl().toString().contains("includeRegex=b"));
+        assertNull(res.getElementById("job_a"));
+        assertNotNull(res.getElementById("job_b"));
+        
+        webClient.assertFails(view.getUrl() + "?includeRegex=(", 400);
+    }
+    
+    @Test
+    public void notModified() throws Exception {
+        j.createFreeStyleProject("a");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        WebRequest req = new WebRequest(new URL(j.getURL(), view.getUrl() + "?includeRegex=a.*"));
+        WebResponse rsp = webClient.loadWebResponse(req);
+        assertEquals(200, rsp.getStatusCode());
+        String etag = rsp.getResponseHeaderValue("ETag");
+        assertNotNull(etag);
+        
+        req.setAdditionalHeader("If-None-Match", etag);
+        assertEquals(304, webClient.loadWebResponse(req).getStatusCode());
+        
+        // Saves of unrelated data do not change the page
+        User.getById("alice", true).save();
+        assertEquals(304, webClient.loadWebResponse(req).getStatusCode());
+        
+        j.createFreeStyleProject("a2");
+        rsp = webClient.loadWebResponse(req);
+        assertEquals(200, rsp.getStatusCode());
+        assertNotEquals(etag, rsp.getResponseHeaderValue("ETag"));
+        
+        // Pages without a query depend on the filters, which are in effect
+        req = new WebRequest(new URL(j.getURL(), view.getUrl()));
+        req.setAdditionalHeader("If-None-Match", webClient.loadWebResponse(req).getResponseHeaderValue("ETag"));
+        view.setDefaultIncludeRegex("a2");
+        assertEquals(200, webClient.loadWebResponse(req).getStatusCode());
+    }
+    
+    @Test
+    public void queryApi() throws Exception {
+        j.createFreeStyleProject("a1");
+        j.createFreeStyleProject("a2").disable();
+        j.createFreeStyleProject("b1");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        String res = webClient.goTo(view.getUrl() + "query?includeRegex=a.*&fields=name,disabled", 
+                "application/x-ndjson").getWebResponse().getContentAsString();
+        assertEquals("{\"name\":\"a1\",\"disabled\":false}\n{\"name\":\"a2\",\"disabled\":true}\n", res);
+        
+        res = webClient.goTo(view.getUrl() + "query?statusFilter=1&fields=name&format=json&offset=1&limit=1", 
+                "application/json").getWebResponse().getContentAsString();
+        assertEquals("[{\"name\":\"b1\"}]\n", res);
+        
+        webClient.assertFails(view.getUrl() + "query?includeRegex=(", 400);
+        webClient.assertFails(view.getUrl() + "query?fields=unknown", 400);
+    }
+    
+    @Test
+    public void statusFilterFollowsProjects() throws Exception {
+        j.createFreeStyleProject("a");
+        FreeStyleProject b = j.createFreeStyleProject("b");
+        j.createFolder("f");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        String url = view.getUrl() + "query?fields=name&statusFilter=";
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\"}\n{\"name\":\"f\"}\n", 
+                webClient.goTo(url + "1", "application/x-ndjson").getWebResponse().getContentAsString());
+        
+        b.disable();
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"f\"}\n", 
+                webClient.goTo(url + "1", "application/x-ndjson").getWebResponse().getContentAsString());
+        assertEquals("{\"name\":\"b\"}\n{\"name\":\"f\"}\n", 
+                webClient.goTo(url + "0", "application/x-ndjson").getWebResponse().getContentAsString());
+        
+        b.enable();
+        assertEquals("{\"name\":\"f\"}\n", 
+                webClient.goTo(url + "0", "application/x-ndjson").getWebResponse().getContentAsString());
+    }
+    
+    @Test
+    public void textQuery() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        a.setDescription("Nightly deployment");
+        a.setAssignedLabel(j.jenkins.getLabel("linux"));
+        FreeStyleProject b = j.createFreeStyleProject("b");
+        b.setAssignedLabel(j.jenkins.getLabel("windows"));
+        MockFolder folder = j.createFolder("f");
+        folder.createProject(FreeStyleProject.class, "deploy-tool");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        String url = view.getUrl() + "query?fields=name&textQuery=";
+        assertEquals("{\"name\":\"a\"}\n", 
+                webClient.goTo(url + "deploy*", "application/x-ndjson").getWebResponse().getContentAsString());
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\"}\n", 
+                webClient.goTo(url + "label:linux+OR+label:windows", "application/x-ndjson").getWebResponse().getContentAsString());
+        assertEquals("{\"name\":\"b\"}\n{\"name\":\"f\"}\n", 
+                webClient.goTo(url + "-description:nightly", "application/x-ndjson").getWebResponse().getContentAsString());
+        webClient.assertFails(url + "%28deploy", 400);
+        
+        // Descriptions are saved without item events
+        b.setDescription("Deployment of the tool");
+        view.setRecurse(true);
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\"}\n{\"name\":\"deploy-tool\"}\n", 
+                webClient.goTo(url + "deploy*", "application/x-ndjson").getWebResponse().getContentAsString());
+        
+        SimpleSearchView.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(SimpleSearchView.DescriptorImpl.class);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckTextQuery("name:a OR (b -c*)").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckTextQuery("owner:a").kind);
+    }
+    
+    @Test
+    public void suggest() throws Exception {
+        j.createFreeStyleProject("deploy-a");
+        j.createFreeStyleProject("Deploy-b");
+        FreeStyleProject hidden = j.createFreeStyleProject("deploy-hidden");
+        j.createFreeStyleProject("build");
+        MockFolder folder = j.createFolder("deployments");
+        folder.createProject(FreeStyleProject.class, "prod");
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ).everywhere().toEveryone()
+                .grant(Item.READ).onItems(j.jenkins.getItem("deploy-a"), j.jenkins.getItem("Deploy-b"),
+                        j.jenkins.getItem("build"), folder, folder.getItem("prod")).to("alice"));
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient().login("alice");
+        JSONObject res = suggest(webClient, view, "dep");
+        assertEquals(3, res.getInt("count"));
+        assertTrue(res.getBoolean("exact"));
+        assertEquals(Arrays.asList("deploy-a", "Deploy-b", "deployments"), suggestedNames(res));
+        assertFalse(res.getJSONArray("suggestions").getJSONObject(2).getBoolean("group"));
+        
+        res = suggest(webClient, view, "dep&limit=1");
+        assertEquals(3, res.getInt("count"));
+        assertEquals(Arrays.asList("deploy-a"), suggestedNames(res));
+        
+        // Completions follow item changes
+        hidden.renameTo("deploy-c");
+        j.jenkins.getItem("build").delete();
+        assertEquals(3, suggest(webClient, view, "D").getInt("count"));
+        assertEquals(0, suggest(webClient, view, "bu").getInt("count"));
+        
+        // Recursive views complete names in folders
+        assertEquals(0, suggest(webClient, view, "deployments/").getInt("count"));
+        view.setRecurse(true);
+        assertTrue(suggest(webClient, view, "deployments").getJSONArray("suggestions").getJSONObject(0).getBoolean("group"));
+        assertEquals(Arrays.asList("deployments/prod"), suggestedNames(suggest(webClient, view, "deployments/P")));
+        assertEquals(0, suggest(webClient, view, "deploy-a/").getInt("count"));
+        
+        webClient.assertFails(view.getUrl() + "suggest?limit=-1", 400);
+    }
+    
+    private JSONObject suggest(JenkinsRule.WebClient webClient, View view, String query) throws Exception {
+        return JSONObject.fromObject(webClient.goTo(view.getUrl() + "suggest?prefix=" + query, 
+                "application/json").getWebResponse().getContentAsString());
+    }
+    
+    private static List<String> suggestedNames(JSONObject res) {
+        List<String> names = new ArrayList<String>();
+        JSONArray suggestions = res.getJSONArray("suggestions");
+        for (int i = 0; i < suggestions.size(); i++) {
+            names.add(suggestions.getJSONObject(i).getString("name"));
+        }
+        return names;
+    }
+    
+    @Test
+    public void jobFiltersAreNotBuiltFromUrl() throws Exception {
+        j.createFreeStyleProject("a");
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        CountingJobFilter.INVOCATIONS.set(0);
+        String jobFilters = URLEncoder.encode(
+                "[{\"stapler-class\":\"" + CountingJobFilter.class.getName() + "\"}]", "UTF-8");
+        assertEquals("{\"name\":\"a\"}\n", j.createWebClient().goTo(
+                view.getUrl() + "query?fields=name&jobFilters=" + jobFilters, "application/x-ndjson")
+                .getWebResponse().getContentAsString());
+        assertEquals(0, CountingJobFilter.INVOCATIONS.get());
+    }
+    
+    @Test
+    public void readersRunJobFilterSearches() throws Exception {
+        j.createFreeStyleProject("a");
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, View.READ, Item.READ).everywhere().to("reader"));
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient().login("reader");
+        webClient.getOptions().setJavaScriptEnabled(false);
+        WebRequest submit = new WebRequest(new URL(j.getURL(), view.getUrl() + "searchSubmit"), HttpMethod.POST);
+        submit.setRequestParameters(new ArrayList<NameValuePair>(Arrays.asList(
+                new NameValuePair("_.includeRegex", "a"),
+                new NameValuePair("runSearchButton", "Search"),
+                new NameValuePair("json", "{\"jobFilters\":{\"stapler-class\":\"" 
+                        + CountingJobFilter.class.getName() + "\"}}"))));
+        webClient.addCrumb(submit);
+        CountingJobFilter.INVOCATIONS.set(0);
+        HtmlPage page = webClient.getPage(submit);
+        assertNotNull(page.getElementById("job_a"));
+        assertTrue("The job filter should be applied", CountingJobFilter.INVOCATIONS.get() > 0);
+        assertFalse("Job filters should not be passed in the URL", page.getUrl().toString().contains("jobFilters"));
+        assertTrue("The search should not be saved", view.getSavedSearches().isEmpty());
+    }
+    
+    @Test
+    public void textIndexSurvivesReload() throws Exception {
+        FreeStyleProject a = j.createFreeStyleProject("a");
+        a.setDescription("Nightly deployment");
+        j.createFreeStyleProject("b");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        j.jenkins.addView(view);
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        String url = view.getUrl() + "query?fields=name&textQuery=";
+        assertEquals("{\"name\":\"a\"}\n", 
+                webClient.goTo(url + "nightly", "application/x-ndjson").getWebResponse().getContentAsString());
+        
+        // The first text query starts the build, save the index like the periodic task does once it is built
+        File snapshot = new File(j.jenkins.getRootDir(), "caches/dynamic-search-view/full-text-index.bin");
+        for (int i = 0; i < 100 && !snapshot.isFile(); i++) {
+            for (PeriodicWork work : PeriodicWork.all()) {
+                if (work.getClass().getName().endsWith("FullTextIndex$SaveWork")) {
+                    work.run();
+                }
+            }
+            Thread.sleep(100);
+        }
+        assertTrue(snapshot.isFile());
+        
+        j.jenkins.reload();
+        assertEquals("{\"name\":\"a\"}\n", 
+                webClient.goTo(url + "nightly", "application/x-ndjson").getWebResponse().getContentAsString());
+        
+        // Damaged snapshots are ignored
+        Files.write(snapshot.toPath(), new byte[] {0x44, 0x53, 0x56, 0x49, 0, 0, 0, 1, 0x7f});
+        j.jenkins.reload();
+        assertEquals("{\"name\":\"a\"}\n", 
+                webClient.goTo(url + "nightly", "application/x-ndjson").getWebResponse().getContentAsString());
+    }
+    
+    @Test
+    public void viewsOfOnePageAreCalculatedTogether() throws Exception {
+        j.createFreeStyleProject("a1");
+        j.createFreeStyleProject("a2");
+        j.createFreeStyleProject("b1");
+        MockFolder folder = j.createFolder("f");
+        folder.createProject(FreeStyleProject.class, "a3");
+        
+        String[][] views = {{"v1", "a.*"}, {"v2", "b.*"}, {"v3", ".*1"}, {"v4", "a.*"}};
+        for (String[] spec : views) {
+            SimpleSearchView view = new SimpleSearchView(spec[0]);
+            view.setDefaultIncludeRegex(spec[1]);
+            view.setRecurse(spec[0].equals("v4"));
+            j.jenkins.addView(view);
+        }
+        
+        assertEquals("v1:a1,a2\nv2:b1\nv3:a1,b1\nv4:a1,a2,f/a3\n", j.createWebClient()
+                .goTo("viewItems", "text/plain").getWebResponse().getContentAsString());
+        // Search parameters of the page do not apply to the views it shows
+        assertEquals("v1:a1,a2\nv2:b1\nv3:a1,b1\nv4:a1,a2,f/a3\n", j.createWebClient()
+                .goTo("viewItems?includeRegex=b.*", "text/plain").getWebResponse().getContentAsString());
+        
+        // Views, which the page does not show, are not searched
+        for (String[] spec : views) {
+            ((SimpleSearchView) j.jenkins.getView(spec[0])).setDefaultIncludeRegex(spec[1] + "|x");
+        }
+        long searches = SearchMetrics.get().getFilterCount();
+        assertEquals("v2:b1\nv3:a1,b1\n", j.createWebClient()
+                .goTo("viewItems?views=v2,v3", "text/plain").getWebResponse().getContentAsString());
+        assertEquals(searches + 2, SearchMetrics.get().getFilterCount());
+    }
+    
+    @Test
+    public void tabPageCalculatesItsViewOnly() throws Exception {
+        j.createFreeStyleProject("a1");
+        j.createFreeStyleProject("b1");
+        
+        String[][] views = {{"v1", "a.*"}, {"v2", "b.*"}, {"v3", ".*1"}};
+        for (String[] spec : views) {
+            SimpleSearchView view = new SimpleSearchView(spec[0]);
+            view.setDefaultIncludeRegex(spec[1]);
+            j.jenkins.addView(view);
+        }
+        
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.getOptions().setJavaScriptEnabled(false);
+        long searches = SearchMetrics.get().getFilterCount();
+        HtmlPage page = webClient.goTo("view/v2/?includeRegex=.*1");
+        assertNotNull(page.getElementById("job_a1"));
+        assertNotNull(page.getElementById("job_b1"));
+        assertEquals("Other views of the tab bar should not be searched", 
+                searches + 1, SearchMetrics.get().getFilterCount());
+    }
+    
+    /**
+     * Lists items of several search views within a single request, like 
+     * pages showing several views do.
+     */
+    @TestExtension("viewsOfOnePageAreCalculatedTogether")
+    public static class ViewItemsAction implements UnprotectedRootAction {
+        
+        @Override
+        public String getUrlName() {
+            return "viewItems";
+        }
+        
+        @Override
+        public String getIconFileName() {
+            return null;
+        }
+        
+        @Override
+        public String getDisplayName() {
+            return null;
+        }
+        
+        public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            StringBuilder res = new StringBuilder();
+            String views = req.getParameter("views");
+            for (String name : (views != null ? views : "v1,v2,v3,v4").split(",")) {
+                List<String> items = new ArrayList<String>();
+                for (TopLevelItem item : Jenkins.get().getView(name).getItems()) {
+                    items.add(item.getRelativeNameFrom(Jenkins.get()));
+                }
+                res.append(name).append(':').append(String.join(",", items)).append('\n');
+            }
+            rsp.setContentType("text/plain;charset=UTF-8");
+            rsp.getWriter().print(res);
+        }
+    }
+    
+    @Test
+    public void jobFilterStats() throws Exception {
+        j.createFreeStyleProject("a");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("b.*");
+        view.setDefaultJobFilters(Collections.singletonList(new CountingJobFilter()));
+        j.jenkins.addView(view);
+        
+        CountingJobFilter.INVOCATIONS.set(0);
+        assertItems(view);
+        assertEquals(1, CountingJobFilter.INVOCATIONS.get());
+        assertEquals(1, view.getJobFilterStats().getEntries().size());
+        assertEquals(1, view.getJobFilterStats().getEntries().get(0).getInvocations());
+        
+        // Nothing to filter, the filter is skipped
+        view.setOptimizeJobFilters(true);
+        assertItems(view);
+        assertEquals(1, CountingJobFilter.INVOCATIONS.get());
+        assertEquals(1, view.getJobFilterStats().getEntries().get(0).getSkipped());
+        
+        j.createWebClient().goTo(view.getUrl() + "jobFilterStats");
+    }
+    
+    @Test
+    public void metrics() throws Exception {
+        j.createFreeStyleProject("a");
+        
+        SimpleSearchView view = new SimpleSearchView("testView");
+        view.setDefaultIncludeRegex("a.*");
+        j.jenkins.addView(view);
+        
+        SearchMetrics metrics = SearchMetrics.get();
+        long searches = metrics.getFilterCount();
+        long returned = metrics.getItemsReturned();
+        JenkinsRule.WebClient webClient = j.createWebClient();
+        webClient.goTo(view.getUrl());
+        assertTrue(metrics.getFilterCount() > searches);
+        assertTrue(metrics.getItemsReturned() > returned);
+        
+        webClient.goTo("manage/dynamic-search-metrics");
+        assertEquals(metrics.getFilterCount(), ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("com.synopsys.arc.jenkinsci.plugins.dynamic_search:type=SearchMetrics"), "FilterCount"));
+    }
+    
+    private String readJenkinsConfig() throws IOException {
+        return new String(Files.readAllBytes(new File(j.jenkins.getRootDir(), "config.xml").toPath()), 
+                StandardCharsets.UTF_8);
+    }
+    
+    private static void assertSavedItems(SimpleSearchView view, SavedSearch search, String ... expectedNames) {
+        List<String> names = new ArrayList<String>();
+        for (TopLevelItem item : search.getItems(view)) {
+            names.add(item.getName());
+        }
+        assertEquals(Arrays.asList(expectedNames), names);
+    }
+    
+    private static void assertItems(SimpleSearchView view, String ... expectedNames) {
+        List<String> names = new ArrayList<String>();
+        for (TopLevelItem item : view.getItems()) {
+            names.add(item.getName());
+        }
+        assertEquals(Arrays.asList(expectedNames), names);
+    }
+    
+    /**
+     * Job filter, which keeps items named after the current user.
+     */
+    public static class CurrentUserJobFilter extends ViewJobFilter {
+        
+        static final AtomicInteger INVOCATIONS = new AtomicInteger();
+
+        @Override
+        public List<TopLevelItem> filter(List<TopLevelItem> added, List<TopLevelItem> all, View filteringView) {
+            INVOCATIONS.incrementAndGet();
+            final User user = User.current();
+            final List<TopLevelItem> res = new ArrayList<TopLevelItem>();
+            for (TopLevelItem item : added) {
+                if (user != null && item.getName().equals(user.getId())) {
+                    res.add(item);
+                }
+            }
+            return res;
+        }
+        
+        @TestExtension("jobFiltersRunAsCurrentUser")
+        public static class DescriptorImpl extends Descriptor<ViewJobFilter> {
+            
+            @Override
+            public String getDisplayName() {
+                return "Current user filter";
+            }
+        }
+    }
+    
+    /**
+     * Pass-through job filter, which counts its invocations.
+     * {@link com.synopsys.arc.jenkinsci.plugins.dynamic_search.views.JobsFilter} 
+     * invokes it once per {@code doFilter()} call.
+     */
+    public static class CountingJobFilter extends ViewJobFilter {
+        
+        static final AtomicInteger INVOCATIONS = new AtomicInteger();
+
+        @Override
+        public List<TopLevelItem> filter(List<TopLevelItem> added, List<TopLevelItem> all, View filteringView) {
+            INVOCATIONS.incrementAndGet();
+            return added;
+        }
+        
+        @TestExtension
+        public static class DescriptorImpl extends Descriptor<ViewJobFilter> {
+            
+            @Override
+            public String getDisplayName() {
+                return "Counting filter";
+            }
+        }
+    }
 }